@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares running many tiny runnables with {@link Jobs#batch} against building, scheduling and
+ * joining one job per runnable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+
+  private static final int MAX_PARALLELISM = 4;
+
+  @Param({ "1000" })
+  private int runnableCount;
+
+  private final AtomicInteger counter = new AtomicInteger();
+  private List<Runnable> runnables;
+
+  @Setup
+  public void setUp() {
+    runnables = new ArrayList<Runnable>(runnableCount);
+    for (int i = 0; i < runnableCount; i++) {
+      runnables.add(new Runnable() {
+        @Override
+        public void run() {
+          counter.incrementAndGet();
+        }
+      });
+    }
+  }
+
+  @Benchmark
+  public Job batch() throws InterruptedException {
+    JobBuilder template = Jobs.builder().title("Batch").isSystemJob();
+    Job job = Jobs.batch(template, runnables, MAX_PARALLELISM).buildAndSchedule();
+    job.join();
+    return job;
+  }
+
+  @Benchmark
+  public List<Job> jobPerRunnable() throws InterruptedException {
+    List<Job> jobs = new ArrayList<Job>(runnables.size());
+    for (Runnable runnable : runnables) {
+      jobs.add(Jobs.builder("Job", runnable).isSystemJob().buildAndSchedule());
+    }
+    for (Job job : jobs) {
+      job.join();
+    }
+    return jobs;
+  }
+}
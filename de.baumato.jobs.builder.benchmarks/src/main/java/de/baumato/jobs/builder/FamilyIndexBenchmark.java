@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares looking up a family in the family index of the builder with the job manager, which asks
+ * every job whether it belongs to the family. The jobs are scheduled with a long delay, so they
+ * stay sleeping for the whole benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FamilyIndexBenchmark {
+
+  private static final int FAMILY_COUNT = 100;
+
+  @Param({ "10000" })
+  private int jobCount;
+
+  private final Runnable runnable = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  private final String family = familyOf(0);
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < jobCount; i++) {
+      Jobs.builder("Benchmark", runnable)
+        .isSystemJob()
+        .family(familyOf(i % FAMILY_COUNT))
+        .buildAndScheduleWithDelay(1, TimeUnit.HOURS);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    for (int i = 0; i < FAMILY_COUNT; i++) {
+      Jobs.cancelFamily(familyOf(i));
+    }
+  }
+
+  @Benchmark
+  public int countFamily() {
+    return Jobs.countFamily(family);
+  }
+
+  @Benchmark
+  public int jobManagerFind() {
+    return Job.getJobManager().find(family).length;
+  }
+
+  private static String familyOf(int index) {
+    return "Family " + index;
+  }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of building a job without scheduling it. Run with {@code -prof gc} to see the
+ * bytes allocated per built job.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JobBuilderBenchmark {
+
+  private final Runnable runnable = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  @Benchmark
+  public Job build() {
+    return Jobs.builder("Benchmark", runnable).build();
+  }
+
+  @Benchmark
+  public Job buildWithOptions() {
+    return Jobs.builder("Benchmark", runnable)
+      .isSystemJob()
+      .family(JobBuilderBenchmark.class)
+      .runsNotConcurrently()
+      .build();
+  }
+}
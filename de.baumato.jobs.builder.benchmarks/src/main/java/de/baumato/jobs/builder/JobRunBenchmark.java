@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the per run overhead of a built job with a plain {@link Job} subclass running the same
+ * runnable. Both jobs are run directly, without the job manager, so only the work done inside
+ * {@code run} is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JobRunBenchmark {
+
+  private final IProgressMonitor monitor = new NullProgressMonitor();
+  private final Runnable runnable = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  private InternalJob internalJob;
+  private PlainJob plainJob;
+
+  @Setup
+  public void setUp() {
+    internalJob = (InternalJob) Jobs.builder("Benchmark", runnable).build();
+    plainJob = new PlainJob(runnable);
+  }
+
+  @Benchmark
+  public IStatus internalJob() {
+    return internalJob.run(monitor);
+  }
+
+  @Benchmark
+  public IStatus plainJob() {
+    return plainJob.run(monitor);
+  }
+
+  private static class PlainJob extends Job {
+
+    private final Runnable runnable;
+
+    PlainJob(Runnable runnable) {
+      super("Benchmark");
+      this.runnable = runnable;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      runnable.run();
+      return Status.OK_STATUS;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link NotConcurrentlyRule#isConflicting} while several threads query the same rules,
+ * as the job manager does when many jobs with rules are scheduled at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class NotConcurrentlyRuleBenchmark {
+
+  private final NotConcurrentlyRule rule = new NotConcurrentlyRule("lock");
+  private final NotConcurrentlyRule sameLock = new NotConcurrentlyRule(new String("lock"));
+  private final NotConcurrentlyRule otherLock = new NotConcurrentlyRule("other");
+
+  @Benchmark
+  public boolean conflicting() {
+    return rule.isConflicting(sameLock);
+  }
+
+  @Benchmark
+  public boolean notConflicting() {
+    return rule.isConflicting(otherLock);
+  }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares submitting a short payload to a {@link ReusableJob} with building and scheduling a new
+ * job for it. Every run is joined before the next one starts. Run with {@code -prof gc} to see the
+ * allocation per run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReusableJobBenchmark {
+
+  private final AtomicInteger counter = new AtomicInteger();
+  private final Runnable payload = new Runnable() {
+    @Override
+    public void run() {
+      counter.incrementAndGet();
+    }
+  };
+
+  private ReusableJob reusableJob;
+
+  @Setup
+  public void setUp() {
+    reusableJob = Jobs.builder().title("Reusable").isSystemJob().buildReusable();
+  }
+
+  @Benchmark
+  public Job reusableJob() throws InterruptedException {
+    reusableJob.submit(payload);
+    Job job = reusableJob.getJob();
+    job.join();
+    return job;
+  }
+
+  @Benchmark
+  public Job jobPerRun() throws InterruptedException {
+    Job job = Jobs.builder("Job", payload).isSystemJob().buildAndSchedule();
+    job.join();
+    return job;
+  }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a {@link RunnableAdapter} whose runnable completes with one whose runnable throws. The
+ * failing runnable always throws the same preallocated exception, so the difference is the cost of
+ * the adapter's error handling and not the cost of filling in a new stack trace.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RunnableAdapterBenchmark {
+
+  private static final RuntimeException FAILURE = new IllegalStateException("Benchmark");
+
+  private final IProgressMonitor monitor = new NullProgressMonitor();
+
+  private final RunnableAdapter succeeding = new RunnableAdapter("Benchmark", new Runnable() {
+    @Override
+    public void run() {
+    }
+  });
+
+  private final RunnableAdapter failing = new RunnableAdapter("Benchmark", new Runnable() {
+    @Override
+    public void run() {
+      throw FAILURE;
+    }
+  });
+
+  @Benchmark
+  public Object succeeding() throws InvocationTargetException, InterruptedException {
+    succeeding.run(monitor);
+    return monitor;
+  }
+
+  @Benchmark
+  public Object failing() throws InterruptedException {
+    try {
+      failing.run(monitor);
+      return monitor;
+    } catch (InvocationTargetException e) {
+      return e;
+    } catch (RuntimeException e) {
+      return e;
+    }
+  }
+}
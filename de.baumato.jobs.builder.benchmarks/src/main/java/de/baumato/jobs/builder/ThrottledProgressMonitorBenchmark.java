@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares reporting fine grained progress directly to a monitor with reporting it through a
+ * {@link ThrottledProgressMonitor}. The target monitor queues a runnable for every call, like the
+ * workbench progress monitor does with <code>Display.asyncExec</code>. Draining the queue stands in
+ * for the UI thread and burns a fixed amount of CPU per update.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ThrottledProgressMonitorBenchmark {
+
+  private static final int WORK = 10000;
+  private static final int SUB_TASK_INTERVAL = 100;
+  private static final long THROTTLE_MILLIS = 100;
+  private static final long UI_UPDATE_TOKENS = 100;
+
+  private final QueueingProgressMonitor target = new QueueingProgressMonitor();
+
+  @Benchmark
+  public int direct() {
+    return report(target);
+  }
+
+  @Benchmark
+  public int throttled() {
+    return report(new ThrottledProgressMonitor(target, THROTTLE_MILLIS));
+  }
+
+  private int report(IProgressMonitor monitor) {
+    monitor.beginTask("Benchmark", WORK);
+    for (int i = 0; i < WORK; i++) {
+      if (i % SUB_TASK_INTERVAL == 0) {
+        monitor.subTask("Item " + i);
+      }
+      monitor.worked(1);
+    }
+    monitor.done();
+    return target.drain();
+  }
+
+  private static class QueueingProgressMonitor extends NullProgressMonitor {
+
+    private final Queue<Runnable> updates = new ConcurrentLinkedQueue<Runnable>();
+
+    @Override
+    public void beginTask(String name, int totalWork) {
+      enqueue();
+    }
+
+    @Override
+    public void subTask(String name) {
+      enqueue();
+    }
+
+    @Override
+    public void worked(int work) {
+      enqueue();
+    }
+
+    @Override
+    public void internalWorked(double work) {
+      enqueue();
+    }
+
+    @Override
+    public void done() {
+      enqueue();
+    }
+
+    private void enqueue() {
+      updates.add(new Runnable() {
+        @Override
+        public void run() {
+        }
+      });
+    }
+
+    int drain() {
+      int count = 0;
+      Runnable update;
+      while ((update = updates.poll()) != null) {
+        update.run();
+        Blackhole.consumeCPU(UI_UPDATE_TOKENS);
+        count++;
+      }
+      return count;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * Gives feedback to the user about several finished jobs at once.
+ *
+ * @see JobBuilder#aggregatedUserFeedback(String, AggregatedUserFeedbackRunnable)
+ */
+public interface AggregatedUserFeedbackRunnable {
+
+  /**
+   * Gives feedback to the user. Runs in the UI thread, or in the executor set by
+   * {@link Jobs#setUserFeedbackExecutor(java.util.concurrent.Executor)}.
+   *
+   * @param jobResults the results of all jobs using this runnable that finished since the last
+   *        call, in the order the jobs finished; never empty
+   * @param immediateFeedback <code>true</code> if the feedback is given directly after job
+   *        completion, false otherwise
+   */
+  public void performUserFeedback(List<IStatus> jobResults, boolean immediateFeedback);
+
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+/**
+ * Runs a collection of runnables as one job. Instead of scheduling one job per runnable only
+ * <tt>maxParallelism - 1</tt> helper jobs are scheduled; the batch job and its helpers drain a
+ * shared queue. Failures of single runnables do not stop the batch, they are collected into one
+ * <tt>MultiStatus</tt>.
+ */
+class BatchRunnable implements ProgressRunnable {
+
+  private static final long PROGRESS_POLL_MILLIS = 100;
+
+  private final String title;
+  private final int maxParallelism;
+  private final List<Runnable> runnables;
+
+  BatchRunnable(String title, Collection<? extends Runnable> runnables, int maxParallelism) {
+    checkNotNull(runnables, "Given runnables are null.");
+    checkArgument(maxParallelism > 0, "Given max parallelism must be greater than 0.");
+    this.title = checkNotNull(title);
+    this.maxParallelism = maxParallelism;
+    this.runnables = new ArrayList<Runnable>(runnables);
+  }
+
+  /**
+   * Runs all runnables. Every run starts with a new queue, so that a retried or rescheduled batch
+   * does all the work again.
+   */
+  @Override
+  public void run(IProgressMonitor monitor) throws InvocationTargetException,
+      InterruptedException {
+    new Batch().run(monitor);
+  }
+
+  /**
+   * The state of one run of the batch.
+   */
+  private final class Batch {
+
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<Runnable>(runnables);
+    private final Queue<IStatus> failures = new ConcurrentLinkedQueue<IStatus>();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final List<Helper> helpers = new ArrayList<Helper>();
+    private volatile boolean canceled;
+
+    void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+      monitor.beginTask(title, runnables.size());
+      try {
+        CountDownLatch helpersDone = scheduleHelpers();
+        drain(monitor);
+        awaitHelpers(helpersDone, monitor);
+        if (canceled) {
+          throw new InterruptedException();
+        }
+        throwFailuresIfAny();
+      } finally {
+        canceled = true;
+        monitor.done();
+      }
+    }
+
+    private CountDownLatch scheduleHelpers() {
+      int helperCount = Math.min(maxParallelism, runnables.size()) - 1;
+      CountDownLatch helpersDone = new CountDownLatch(Math.max(helperCount, 0));
+      for (int i = 0; i < helperCount; i++) {
+        Helper helper = new Helper(this, helpersDone);
+        helpers.add(helper);
+        helper.schedule();
+      }
+      return helpersDone;
+    }
+
+    private void drain(IProgressMonitor monitor) {
+      int reported = 0;
+      Runnable runnable;
+      while (!checkCanceled(monitor) && (runnable = pending.poll()) != null) {
+        runSafely(runnable);
+        reported = reportProgress(monitor, reported);
+      }
+    }
+
+    /**
+     * Waits until every helper is done. After cancellation the helpers are canceled as well, so
+     * that helpers which have not started yet are done without running.
+     */
+    private void awaitHelpers(CountDownLatch helpersDone, IProgressMonitor monitor)
+        throws InterruptedException {
+      if (canceled) {
+        cancelHelpers();
+      }
+      int reported = completed.get();
+      while (!helpersDone.await(PROGRESS_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (!canceled && checkCanceled(monitor)) {
+          cancelHelpers();
+        }
+        reported = reportProgress(monitor, reported);
+      }
+    }
+
+    private void cancelHelpers() {
+      for (Helper helper : helpers) {
+        helper.cancel();
+      }
+    }
+
+    private boolean checkCanceled(IProgressMonitor monitor) {
+      if (monitor.isCanceled()) {
+        canceled = true;
+      }
+      return canceled;
+    }
+
+    private int reportProgress(IProgressMonitor monitor, int reported) {
+      int current = completed.get();
+      if (current > reported) {
+        monitor.worked(current - reported);
+      }
+      return current;
+    }
+
+    void runSafely(Runnable runnable) {
+      try {
+        runnable.run();
+      } catch (RuntimeException e) {
+        failures.add(new Status(IStatus.ERROR, InternalJob.PLUGIN_ID, e.getMessage(), e));
+      } finally {
+        completed.incrementAndGet();
+      }
+    }
+
+    private void throwFailuresIfAny() throws InvocationTargetException {
+      if (!failures.isEmpty()) {
+        IStatus[] children = failures.toArray(new IStatus[failures.size()]);
+        String msg =
+            String.format("%d of %d tasks of '%s' failed.", children.length, runnables.size(),
+                title);
+        MultiStatus status =
+            new MultiStatus(InternalJob.PLUGIN_ID, IStatus.ERROR, children, msg, null);
+        throw new InvocationTargetException(new CoreException(status));
+      }
+    }
+  }
+
+  /**
+   * System job draining the shared queue of a run next to the batch job. It counts down the latch
+   * of the run when it is done, also if it gets canceled before it has started.
+   */
+  private final class Helper extends Job {
+
+    private final Batch batch;
+
+    Helper(Batch batch, final CountDownLatch helpersDone) {
+      super(title);
+      this.batch = batch;
+      setSystem(true);
+      addJobChangeListener(new JobChangeAdapter() {
+        @Override
+        public void done(IJobChangeEvent event) {
+          helpersDone.countDown();
+        }
+      });
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      Runnable runnable;
+      while (!batch.canceled && !monitor.isCanceled()
+          && (runnable = batch.pending.poll()) != null) {
+        batch.runSafely(runnable);
+      }
+      return Status.OK_STATUS;
+    }
+  }
+}
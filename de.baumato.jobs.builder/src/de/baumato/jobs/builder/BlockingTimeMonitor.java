@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Measures the time the job is blocked. The job manager reports it via
+ * {@link #setBlocked(IStatus)} and {@link #clearBlocked()} if the job waits for a scheduling rule
+ * or lock acquired with this monitor. The start of a blocking period is published as
+ * {@link JobEvent.Type#BLOCKED} event. A job keeps one instance and binds it to the monitor of
+ * every run.
+ */
+class BlockingTimeMonitor extends DelegatingProgressMonitor {
+
+  private final Job job;
+  private final Object family;
+  private long blockedSince;
+  private volatile long blockedNanos;
+
+  BlockingTimeMonitor(IProgressMonitor monitor, Job job, Object family) {
+    super(monitor);
+    this.job = job;
+    this.family = family;
+  }
+
+  @Override
+  void bind(IProgressMonitor monitor) {
+    super.bind(monitor);
+    blockedSince = 0;
+    blockedNanos = 0;
+  }
+
+  @Override
+  public void setBlocked(IStatus reason) {
+    if (blockedSince == 0) {
+      blockedSince = System.nanoTime();
+      JobEventBus.INSTANCE.publish(JobEvent.Type.BLOCKED, job, family, reason);
+    }
+    super.setBlocked(reason);
+  }
+
+  @Override
+  public void clearBlocked() {
+    if (blockedSince != 0) {
+      blockedNanos += System.nanoTime() - blockedSince;
+      blockedSince = 0;
+    }
+    super.clearBlocked();
+  }
+
+  long getBlockedNanos() {
+    return blockedNanos;
+  }
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Callable;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Lets a <tt>Callable</tt> act as a <tt>ProgressRunnable</tt> with unknown amount of work and
+ * keeps the value returned by the callable.
+ */
+class CallableAdapter<T> implements ProgressRunnable {
+
+  private final String title;
+  private final Callable<T> callable;
+  private volatile T value;
+
+  CallableAdapter(String title, Callable<T> callable) {
+    this.title = checkNotNull(title);
+    this.callable = checkNotNull(callable);
+  }
+
+  @Override
+  public void run(IProgressMonitor monitor) throws InvocationTargetException,
+      InterruptedException {
+    try {
+      monitor.beginTask(title, IProgressMonitor.UNKNOWN);
+      value = callable.call();
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new InvocationTargetException(e);
+    } finally {
+      monitor.done();
+    }
+  }
+
+  /**
+   * Returns the value returned by the callable or null if it has not finished successfully.
+   */
+  T getValue() {
+    return value;
+  }
+}
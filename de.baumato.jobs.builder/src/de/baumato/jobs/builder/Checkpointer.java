@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+
+/**
+ * Records the state of a persistent job in the {@link JobJournal}. If the job does not finish, it
+ * is resumed from the last recorded state.
+ *
+ * @see ResumableRunnable
+ */
+public final class Checkpointer {
+
+  private final JobJournal journal;
+  private final String jobId;
+
+  Checkpointer(JobJournal journal, String jobId) {
+    this.journal = journal;
+    this.jobId = jobId;
+  }
+
+  /**
+   * Records the given state. It is written to disk together with the other checkpoints recorded
+   * within a few milliseconds, this method does not wait for it.
+   *
+   * @param state the state to resume from, not null
+   * @throws IOException if the journal could not be written
+   */
+  public void checkpoint(byte[] state) throws IOException {
+    journal.checkpoint(jobId, checkNotNull(state, "Given state is null.").clone());
+  }
+
+  /**
+   * Does the same as {@link #checkpoint(byte[])}, but waits until the state has been written to
+   * disk.
+   *
+   * @param state the state to resume from, not null
+   * @throws IOException if the journal could not be written
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void checkpointAndWait(byte[] state) throws IOException, InterruptedException {
+    long position = journal.checkpoint(jobId, checkNotNull(state, "Given state is null.").clone());
+    journal.awaitForced(position);
+  }
+}
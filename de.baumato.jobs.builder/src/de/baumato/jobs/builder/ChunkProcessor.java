@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+/**
+ * Processes the chunks of a streaming job one after the other, or the regions of a memory-mapped
+ * file concurrently.
+ *
+ * @see Jobs#streaming(JobBuilder, Iterable, int, ChunkProcessor)
+ * @see Jobs#streaming(JobBuilder, java.nio.channels.FileChannel, int, ChunkProcessor)
+ * @see Jobs#streaming(JobBuilder, java.io.File, int, ChunkProcessor)
+ * @see Jobs#mappedFile(JobBuilder, java.io.File, byte, ChunkProcessor)
+ *
+ * @param <C> the type of the chunks
+ */
+public interface ChunkProcessor<C> {
+
+  /**
+   * Processes the given chunk. Throwing an exception stops the stream (or fails the region of the
+   * mapped file) and the job finishes with an error.
+   *
+   * @param chunk the next chunk, never empty
+   * @throws Exception if the chunk could not be processed
+   */
+  public void process(C chunk) throws Exception;
+
+}
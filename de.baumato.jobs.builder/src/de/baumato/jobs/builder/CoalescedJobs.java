@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Objects.firstNonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+/**
+ * Keeps at most one pending job per family for builders using
+ * {@link JobBuilder#coalesce(long, java.util.concurrent.TimeUnit)}. Submissions arriving while a
+ * job of the same family is still waiting replace the runnable of that job instead of scheduling
+ * another one.
+ */
+final class CoalescedJobs {
+
+  private static final Map<Object, InternalJob> PENDING = new HashMap<Object, InternalJob>();
+
+  private CoalescedJobs() {}
+
+  static Job schedule(JobBuilder builder) {
+    Object family = firstNonNull(builder.family, builder.title);
+    InternalJob job;
+    synchronized (PENDING) {
+      job = PENDING.get(family);
+      if (job != null) {
+        job.replaceRunnable(builder.progressRunnable);
+        return job;
+      }
+      job = (InternalJob) builder.build();
+      job.addJobChangeListener(new Release(family));
+      PENDING.put(family, job);
+    }
+    job.schedule(builder.coalesceWindow.longValue());
+    return job;
+  }
+
+  /**
+   * Removes the given job from the pending jobs. Further submissions for its family lead to a new
+   * job. Called as soon as the job starts running, before its runnable is read.
+   */
+  static void release(Object family, InternalJob job) {
+    synchronized (PENDING) {
+      if (PENDING.get(family) == job) {
+        PENDING.remove(family);
+      }
+    }
+  }
+
+  /**
+   * Releases jobs that finish without having been run, e.g. because they were canceled.
+   */
+  private static final class Release extends JobChangeAdapter {
+
+    private final Object family;
+
+    Release(Object family) {
+      this.family = family;
+    }
+
+    @Override
+    public void done(IJobChangeEvent event) {
+      release(family, (InternalJob) event.getJob());
+    }
+  }
+}
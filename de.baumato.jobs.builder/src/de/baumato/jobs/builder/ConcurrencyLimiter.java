@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Objects;
+
+/**
+ * <p>
+ * Limits the number of jobs of one family that run at the same time. A job is checked when it is
+ * about to run. Jobs exceeding the limit are parked: they are put to sleep, so they do not occupy
+ * worker threads but can still be found and canceled by the job manager. A parked job is woken up
+ * as soon as another job of the family finishes.
+ * <p>
+ * In adaptive mode the limit follows the observed run time: it grows additively while jobs finish
+ * within the target latency and shrinks multiplicatively when they take longer (AIMD). The limiter
+ * of a family is evicted once none of its jobs is admitted or parked, so the limit starts again at
+ * the max limit when the family is used next time.
+ */
+final class ConcurrencyLimiter {
+
+  private static final ConcurrentMap<Object, ConcurrencyLimiter> LIMITERS =
+      new ConcurrentHashMap<Object, ConcurrencyLimiter>();
+
+  private static final double DECREASE_FACTOR = 0.9;
+
+  private final Object family;
+  private final Set<InternalJob> admitted = new HashSet<InternalJob>();
+  private final Set<InternalJob> parked = new LinkedHashSet<InternalJob>();
+  private double limit;
+  private int minLimit;
+  private int maxLimit;
+  private long targetLatencyNanos;
+  private boolean evicted;
+
+  private ConcurrencyLimiter(Object family) {
+    this.family = family;
+  }
+
+  /**
+   * Returns <code>true</code> if the given job may run, otherwise the job is parked and has to put
+   * itself to sleep. A job that is already admitted, e.g. because it is retried, stays admitted
+   * until {@link #finished(Object, InternalJob, long)} is called for it.
+   * <p>
+   * A target latency of 0 means the limit is fixed to the max limit.
+   */
+  static boolean tryAcquire(Object family, InternalJob job, int minLimit, int maxLimit,
+      long targetLatencyNanos) {
+    while (true) {
+      ConcurrencyLimiter limiter = forFamily(family);
+      synchronized (limiter) {
+        if (limiter.evicted) {
+          // evicted concurrently, the next lookup creates a new limiter
+          continue;
+        }
+        limiter.configure(minLimit, maxLimit, targetLatencyNanos);
+        if (limiter.admitted.contains(job)) {
+          return true;
+        }
+        if (limiter.admitted.size() < limiter.currentLimit()) {
+          limiter.parked.remove(job);
+          limiter.admitted.add(job);
+          return true;
+        }
+        limiter.parked.add(job);
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Called when a job of the given family is done. If it has been admitted, parked jobs are woken
+   * up as far as the limit allows it. If it has been parked, e.g. because it got canceled while
+   * sleeping, it is just forgotten.
+   *
+   * @param runNanos the run time of the job or a negative value if it did not run
+   */
+  static void finished(Object family, InternalJob job, long runNanos) {
+    ConcurrencyLimiter limiter = LIMITERS.get(family);
+    if (limiter != null) {
+      limiter.release(job, runNanos);
+    }
+  }
+
+  private static ConcurrencyLimiter forFamily(Object family) {
+    ConcurrencyLimiter limiter = LIMITERS.get(family);
+    if (limiter == null) {
+      ConcurrencyLimiter newLimiter = new ConcurrencyLimiter(family);
+      limiter = LIMITERS.putIfAbsent(family, newLimiter);
+      if (limiter == null) {
+        limiter = newLimiter;
+      }
+    }
+    return limiter;
+  }
+
+  private void configure(int minLimit, int maxLimit, long targetLatencyNanos) {
+    boolean changed =
+        this.minLimit != minLimit || this.maxLimit != maxLimit
+            || this.targetLatencyNanos != targetLatencyNanos;
+    if (changed) {
+      this.minLimit = minLimit;
+      this.maxLimit = maxLimit;
+      this.targetLatencyNanos = targetLatencyNanos;
+      this.limit = maxLimit;
+    }
+  }
+
+  private void release(InternalJob job, long runNanos) {
+    List<InternalJob> woken = new ArrayList<InternalJob>();
+    synchronized (this) {
+      if (admitted.remove(job)) {
+        adapt(runNanos);
+        while (admitted.size() < currentLimit() && !parked.isEmpty()) {
+          Iterator<InternalJob> first = parked.iterator();
+          InternalJob next = first.next();
+          first.remove();
+          admitted.add(next);
+          woken.add(next);
+        }
+      } else {
+        parked.remove(job);
+      }
+      if (admitted.isEmpty() && parked.isEmpty()) {
+        evicted = true;
+        LIMITERS.remove(family, this);
+      }
+    }
+    for (InternalJob next : woken) {
+      // does nothing for a job canceled in the meantime, its done event releases the permit
+      next.wakeUp();
+    }
+  }
+
+  private void adapt(long runNanos) {
+    if (targetLatencyNanos <= 0 || runNanos < 0) {
+      return;
+    }
+    if (runNanos > targetLatencyNanos) {
+      limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+    } else {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+  }
+
+  private int currentLimit() {
+    return Math.max(1, (int) limit);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return Objects.toStringHelper(this).add("family", family).add("active", admitted.size())
+        .add("limit", currentLimit()).add("parked", parked.size()).toString();
+  }
+}
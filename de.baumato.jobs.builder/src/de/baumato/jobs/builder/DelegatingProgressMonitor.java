@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IProgressMonitorWithBlocking;
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * Like <code>ProgressMonitorWrapper</code> forwards all calls to the wrapped monitor, but the
+ * wrapped monitor can be replaced. The job manager passes a new monitor to every run, so a job
+ * binds its wrappers to that monitor instead of creating them again for every run.
+ */
+abstract class DelegatingProgressMonitor implements IProgressMonitorWithBlocking {
+
+  private volatile IProgressMonitor monitor;
+
+  DelegatingProgressMonitor(IProgressMonitor monitor) {
+    this.monitor = checkNotNull(monitor);
+  }
+
+  /**
+   * Wraps the given monitor from now on. Subclasses reset the state of the previous run.
+   */
+  void bind(IProgressMonitor monitor) {
+    this.monitor = checkNotNull(monitor);
+  }
+
+  IProgressMonitor getWrappedProgressMonitor() {
+    return monitor;
+  }
+
+  @Override
+  public void beginTask(String name, int totalWork) {
+    monitor.beginTask(name, totalWork);
+  }
+
+  @Override
+  public void done() {
+    monitor.done();
+  }
+
+  @Override
+  public void internalWorked(double work) {
+    monitor.internalWorked(work);
+  }
+
+  @Override
+  public boolean isCanceled() {
+    return monitor.isCanceled();
+  }
+
+  @Override
+  public void setCanceled(boolean canceled) {
+    monitor.setCanceled(canceled);
+  }
+
+  @Override
+  public void setTaskName(String name) {
+    monitor.setTaskName(name);
+  }
+
+  @Override
+  public void subTask(String name) {
+    monitor.subTask(name);
+  }
+
+  @Override
+  public void worked(int work) {
+    monitor.worked(work);
+  }
+
+  @Override
+  public void setBlocked(IStatus reason) {
+    IProgressMonitor current = monitor;
+    if (current instanceof IProgressMonitorWithBlocking) {
+      ((IProgressMonitorWithBlocking) current).setBlocked(reason);
+    }
+  }
+
+  @Override
+  public void clearBlocked() {
+    IProgressMonitor current = monitor;
+    if (current instanceof IProgressMonitorWithBlocking) {
+      ((IProgressMonitorWithBlocking) current).clearBlocked();
+    }
+  }
+}
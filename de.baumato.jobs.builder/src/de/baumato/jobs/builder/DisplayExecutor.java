@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.Executor;
+
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * Runs the given runnables asynchronously in the UI thread. If there is no display, they run
+ * directly in the calling thread. Must only be used if SWT is available, see {@link UiSupport}.
+ */
+final class DisplayExecutor implements Executor {
+
+  private static volatile Display rememberedDisplay;
+
+  @Override
+  public void execute(Runnable command) {
+    Display display = findDisplay();
+    if (display != null) {
+      display.asyncExec(command);
+    } else {
+      command.run();
+    }
+  }
+
+  /**
+   * Remembers the display of the calling thread, if it has one, so that feedback of jobs scheduled
+   * in the UI thread finds it later on from a worker thread, also without an e3 workbench.
+   */
+  static void rememberCurrentDisplay() {
+    if (isUsable(rememberedDisplay)) {
+      return;
+    }
+    Display current = Display.getCurrent();
+    if (current != null) {
+      rememberedDisplay = current;
+    }
+  }
+
+  /**
+   * Returns the display of the running workbench or, outside a workbench, the display of the
+   * calling thread or the display remembered when a job has been scheduled. Returns
+   * <code>null</code> if there is none. Unlike <code>Display.getDefault()</code> this never creates
+   * a display.
+   */
+  static Display findDisplay() {
+    Display display;
+    if (UiSupport.isWorkbenchAvailable() && PlatformUI.isWorkbenchRunning()) {
+      display = PlatformUI.getWorkbench().getDisplay();
+    } else {
+      display = Display.getCurrent();
+      if (display == null) {
+        display = rememberedDisplay;
+      }
+    }
+    return isUsable(display) ? display : null;
+  }
+
+  private static boolean isUsable(Display display) {
+    return display != null && !display.isDisposed();
+  }
+}
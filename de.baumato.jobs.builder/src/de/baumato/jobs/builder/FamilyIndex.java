@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the scheduled jobs per family. The job manager finds the jobs of a family by asking
+ * every job whether it belongs to the family; this index looks them up directly. A job is added
+ * when it gets scheduled (also if it is parked by the concurrency limiter or the priority
+ * dispatcher) and removed when it is done.
+ */
+final class FamilyIndex {
+
+  static final FamilyIndex INSTANCE = new FamilyIndex();
+
+  private final ConcurrentMap<Object, Members> families = new ConcurrentHashMap<Object, Members>();
+
+  private FamilyIndex() {}
+
+  /**
+   * Adds the given job to its family.
+   *
+   * @return <code>false</code> if the job has already been in the index
+   */
+  boolean add(Object family, InternalJob job) {
+    while (true) {
+      Members members = families.get(family);
+      if (members == null) {
+        Members created = new Members();
+        members = families.putIfAbsent(family, created);
+        if (members == null) {
+          members = created;
+        }
+      }
+      synchronized (members) {
+        if (!members.removed) {
+          return members.jobs.add(job);
+        }
+      }
+      // the members have just been removed because they became empty, try again
+    }
+  }
+
+  void remove(Object family, InternalJob job) {
+    Members members = families.get(family);
+    if (members == null) {
+      return;
+    }
+    synchronized (members) {
+      if (members.jobs.remove(job) && members.jobs.isEmpty()) {
+        members.removed = true;
+        families.remove(family, members);
+        members.notifyAll();
+      }
+    }
+  }
+
+  List<InternalJob> getJobs(Object family) {
+    Members members = families.get(family);
+    if (members == null) {
+      return new ArrayList<InternalJob>();
+    }
+    synchronized (members) {
+      return new ArrayList<InternalJob>(members.jobs);
+    }
+  }
+
+  int count(Object family) {
+    Members members = families.get(family);
+    if (members == null) {
+      return 0;
+    }
+    synchronized (members) {
+      return members.jobs.size();
+    }
+  }
+
+  /**
+   * Waits until no job of the given family is scheduled anymore.
+   *
+   * @return <code>false</code> if the timeout elapsed before
+   */
+  boolean awaitEmpty(Object family, long timeoutNanos) throws InterruptedException {
+    Members members = families.get(family);
+    if (members == null) {
+      return true;
+    }
+    long deadline = System.nanoTime() + timeoutNanos;
+    synchronized (members) {
+      while (!members.jobs.isEmpty()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        members.wait(remaining / 1000000, (int) (remaining % 1000000));
+      }
+      return true;
+    }
+  }
+
+  /**
+   * The jobs of one family. Removed from the index as soon as it becomes empty; a job of the family
+   * scheduled afterwards creates a new one.
+   */
+  private static final class Members {
+
+    final Set<InternalJob> jobs = new HashSet<InternalJob>();
+    boolean removed;
+  }
+}
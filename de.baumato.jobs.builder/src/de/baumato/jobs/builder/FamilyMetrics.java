@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IStatus;
+
+import com.google.common.base.Objects;
+
+/**
+ * Execution metrics of all jobs of one family. All durations are in microseconds.
+ *
+ * @see JobMetrics
+ */
+public final class FamilyMetrics {
+
+  private final String name;
+  private final LatencyHistogram queueWait = new LatencyHistogram();
+  private final LatencyHistogram runTime = new LatencyHistogram();
+  private final LatencyHistogram blockedTime = new LatencyHistogram();
+  private final AtomicLong okCount = new AtomicLong();
+  private final AtomicLong errorCount = new AtomicLong();
+  private final AtomicLong canceledCount = new AtomicLong();
+  private final AtomicLong retryCount = new AtomicLong();
+  private volatile long lastRecordedAt = System.nanoTime();
+
+  FamilyMetrics(String name) {
+    this.name = name;
+  }
+
+  void record(long queueWaitNanos, long runNanos, long blockedNanos, IStatus result) {
+    lastRecordedAt = System.nanoTime();
+    if (runNanos >= 0) {
+      queueWait.recordNanos(queueWaitNanos);
+      runTime.recordNanos(runNanos);
+      blockedTime.recordNanos(blockedNanos);
+    }
+    countOutcome(result);
+  }
+
+  private void countOutcome(IStatus result) {
+    if (Jobs.isRetrying(result)) {
+      retryCount.incrementAndGet();
+    } else if (result == null || result.getSeverity() == IStatus.CANCEL) {
+      canceledCount.incrementAndGet();
+    } else if (result.getSeverity() == IStatus.ERROR) {
+      errorCount.incrementAndGet();
+    } else {
+      okCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the {@link System#nanoTime()} of the last recorded job, or of the creation if no job has
+   * been recorded yet.
+   */
+  long getLastRecordedAt() {
+    return lastRecordedAt;
+  }
+
+  /**
+   * Returns the family as string.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the time between scheduling and starting the jobs, including the time they waited for
+   * their scheduling rule or a requested delay.
+   */
+  public LatencyHistogram getQueueWait() {
+    return queueWait;
+  }
+
+  /**
+   * Returns the time the jobs have been running.
+   */
+  public LatencyHistogram getRunTime() {
+    return runTime;
+  }
+
+  /**
+   * Returns the time the running jobs have been blocked while acquiring scheduling rules or locks.
+   * Only recorded if the job's runnable passes its progress monitor when acquiring rules.
+   */
+  public LatencyHistogram getBlockedTime() {
+    return blockedTime;
+  }
+
+  public long getOkCount() {
+    return okCount.get();
+  }
+
+  public long getErrorCount() {
+    return errorCount.get();
+  }
+
+  public long getCanceledCount() {
+    return canceledCount.get();
+  }
+
+  /**
+   * Returns the number of failed attempts that have been retried.
+   */
+  public long getRetryCount() {
+    return retryCount.get();
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("name", name).add("ok", getOkCount())
+        .add("error", getErrorCount()).add("canceled", getCanceledCount())
+        .add("retries", getRetryCount()).add("queueWait", queueWait).add("runTime", runTime)
+        .add("blockedTime", blockedTime).toString();
+  }
+}
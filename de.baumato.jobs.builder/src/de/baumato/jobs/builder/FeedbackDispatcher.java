@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * Collects the immediate user feedback of finished jobs and runs it in batches. Only one drain is
+ * handed to the {@link UserFeedbackExecutor} at a time; everything finishing until it runs is given
+ * in the same drain. In the UI thread this means one <tt>asyncExec</tt> per turn of the event loop
+ * instead of one per job. Results of jobs sharing an {@link AggregatedUserFeedbackRunnable} are
+ * passed to it in one call.
+ */
+final class FeedbackDispatcher implements Runnable {
+
+  static final FeedbackDispatcher INSTANCE = new FeedbackDispatcher();
+
+  private final Queue<PendingFeedback> pending = new ConcurrentLinkedQueue<PendingFeedback>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+  private FeedbackDispatcher() {}
+
+  void dispatch(UserFeedback feedback, IStatus jobResult) {
+    pending.add(new PendingFeedback(feedback, jobResult));
+    if (drainScheduled.compareAndSet(false, true)) {
+      try {
+        UserFeedbackExecutor.get().execute(this);
+      } catch (RuntimeException e) {
+        drainScheduled.set(false);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Drains the pending feedback. The flag is reset first so that feedback added while draining
+   * either gets drained here or schedules the next drain.
+   */
+  @Override
+  public void run() {
+    drainScheduled.set(false);
+    Map<AggregatedUserFeedbackRunnable, List<IStatus>> aggregated =
+        new LinkedHashMap<AggregatedUserFeedbackRunnable, List<IStatus>>();
+    PendingFeedback next;
+    while ((next = pending.poll()) != null) {
+      AggregatedUserFeedbackRunnable runnable = next.feedback.aggregatedRunnable;
+      if (runnable == null) {
+        performSafely(next.feedback, next.jobResult);
+      } else {
+        List<IStatus> results = aggregated.get(runnable);
+        if (results == null) {
+          results = new ArrayList<IStatus>();
+          aggregated.put(runnable, results);
+        }
+        results.add(next.jobResult);
+      }
+    }
+    for (Map.Entry<AggregatedUserFeedbackRunnable, List<IStatus>> e : aggregated.entrySet()) {
+      performSafely(e.getKey(), e.getValue());
+    }
+  }
+
+  private static void performSafely(UserFeedback feedback, IStatus jobResult) {
+    try {
+      feedback.performUserFeedback(jobResult, true);
+    } catch (RuntimeException e) {
+      reportFailure(e);
+    }
+  }
+
+  private static void performSafely(AggregatedUserFeedbackRunnable runnable,
+      List<IStatus> jobResults) {
+    try {
+      runnable.performUserFeedback(jobResults, true);
+    } catch (RuntimeException e) {
+      reportFailure(e);
+    }
+  }
+
+  private static void reportFailure(RuntimeException e) {
+    // a failing feedback must not drop the rest of the batch
+    Thread thread = Thread.currentThread();
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+
+  private static final class PendingFeedback {
+
+    final UserFeedback feedback;
+    final IStatus jobResult;
+
+    PendingFeedback(UserFeedback feedback, IStatus jobResult) {
+      this.feedback = feedback;
+      this.jobResult = jobResult;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.concurrent.Callable;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Builds jobs computing a value. Created by {@link JobBuilder#supply(Callable)}, all other
+ * settings are taken from that builder.
+ *
+ * @param <T> the type of the computed value
+ */
+public class FutureJobBuilder<T> {
+
+  private final JobBuilder builder;
+  private final CallableAdapter<T> callable;
+
+  /** package private constructor */
+  FutureJobBuilder(JobBuilder builder, Callable<T> callable) {
+    this.builder = builder;
+    this.callable = new CallableAdapter<T>(builder.title, callable);
+  }
+
+  /**
+   * <p>
+   * Builds the job, schedules it and returns a future that completes when the job is done. The
+   * future
+   * <ul>
+   * <li>holds the value computed by the callable if the job finished successfully,</li>
+   * <li>fails with the exception thrown by the callable (or a <tt>CoreException</tt> holding the
+   * job result) if the job finished with an error,</li>
+   * <li>is canceled if the job has been canceled.</li>
+   * </ul>
+   * <p>
+   * Canceling the future cancels the job. Callbacks can be added to the future to chain dependent
+   * work without blocking a thread.
+   *
+   * @return the future of the job's value
+   */
+  public ListenableFuture<T> buildAsFuture() {
+    checkState(builder.cacheKey == null, "Cached jobs cannot be built as future.");
+    final SettableFuture<T> future = SettableFuture.create();
+    final Job job = builder.progressRunnable(callable).build();
+    job.addJobChangeListener(new JobChangeAdapter() {
+      @Override
+      public void done(IJobChangeEvent event) {
+        if (!Jobs.isRetrying(event.getResult())) {
+          complete(future, event.getResult());
+        }
+      }
+    });
+    future.addListener(new Runnable() {
+      @Override
+      public void run() {
+        if (future.isCancelled()) {
+          job.cancel();
+        }
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    job.schedule();
+    return future;
+  }
+
+  private void complete(SettableFuture<T> future, IStatus result) {
+    if (result.getSeverity() == IStatus.CANCEL) {
+      future.cancel(false);
+    } else if (result.getSeverity() == IStatus.ERROR) {
+      Throwable cause = result.getException();
+      future.setException(cause != null ? cause : new CoreException(result));
+    } else {
+      future.set(callable.getValue());
+    }
+  }
+}
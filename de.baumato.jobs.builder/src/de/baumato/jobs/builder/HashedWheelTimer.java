@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * Timer shared by all jobs. It runs one daemon thread which advances a wheel of buckets every tick
+ * and runs the tasks that expire in the current bucket. Adding and canceling a timeout are cheap,
+ * so there is no need for a thread or a scheduled job per timeout.
+ * <p>
+ * The timeouts are only as precise as one tick. The tasks run on the timer thread and must be
+ * short, e.g. cancel or schedule a job.
+ */
+final class HashedWheelTimer {
+
+  static final HashedWheelTimer INSTANCE = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 512);
+
+  private final long tickNanos;
+  private final List<List<Timeout>> wheel;
+  private final int mask;
+  private final Queue<Timeout> added = new ConcurrentLinkedQueue<Timeout>();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private volatile long startTime;
+  private long tick;
+
+  HashedWheelTimer(long tickDuration, TimeUnit timeUnit, int ticksPerWheel) {
+    this.tickNanos = timeUnit.toNanos(tickDuration);
+    int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+    this.mask = size - 1;
+    this.wheel = new ArrayList<List<Timeout>>(size);
+    for (int i = 0; i < size; i++) {
+      wheel.add(new ArrayList<Timeout>());
+    }
+  }
+
+  /**
+   * Runs the given task once after the given delay.
+   *
+   * @return the timeout, which can be canceled
+   */
+  Timeout newTimeout(Runnable task, long delay, TimeUnit timeUnit) {
+    startIfNecessary();
+    long elapsedNanos = System.nanoTime() - startTime;
+    long delayNanos = timeUnit.toNanos(Math.max(0, delay));
+    // saturates instead of overflowing, a huge delay never expires
+    long deadline =
+        delayNanos > Long.MAX_VALUE - elapsedNanos ? Long.MAX_VALUE : elapsedNanos + delayNanos;
+    Timeout timeout = new Timeout(task, deadline);
+    added.add(timeout);
+    return timeout;
+  }
+
+  private void startIfNecessary() {
+    if (!started.get()) {
+      synchronized (this) {
+        if (!started.get()) {
+          startTime = System.nanoTime();
+          Thread worker = new Thread(new Worker(), "JobBuilder timer");
+          worker.setDaemon(true);
+          worker.start();
+          started.set(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * A task waiting to be run by the timer.
+   */
+  static final class Timeout {
+
+    private final Runnable task;
+    // nanos since the start of the timer
+    private final long deadline;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private long remainingRounds;
+
+    Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the timeout.
+     *
+     * @return <code>false</code> if the task has already been run or canceled
+     */
+    boolean cancel() {
+      return done.compareAndSet(false, true);
+    }
+
+    boolean isCanceled() {
+      return done.get();
+    }
+
+    void expire() {
+      if (done.compareAndSet(false, true)) {
+        try {
+          task.run();
+        } catch (Throwable e) {
+          // a failing task must not stop the timer
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+      }
+    }
+  }
+
+  private final class Worker implements Runnable {
+
+    @Override
+    public void run() {
+      while (true) {
+        waitForNextTick();
+        transferAddedTimeouts();
+        expireTimeouts(wheel.get((int) (tick & mask)));
+        tick++;
+      }
+    }
+
+    private void waitForNextTick() {
+      long deadline = startTime + (tick + 1) * tickNanos;
+      long sleepNanos;
+      while ((sleepNanos = deadline - System.nanoTime()) > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        } catch (InterruptedException e) {
+          // keep on ticking, the timer lives as long as the application
+        }
+      }
+    }
+
+    private void transferAddedTimeouts() {
+      Timeout timeout;
+      while ((timeout = added.poll()) != null) {
+        if (timeout.isCanceled()) {
+          continue;
+        }
+        long expirationTick = Math.max(tick, timeout.deadline / tickNanos);
+        timeout.remainingRounds = (expirationTick - tick) / wheel.size();
+        wheel.get((int) (expirationTick & mask)).add(timeout);
+      }
+    }
+
+    private void expireTimeouts(List<Timeout> bucket) {
+      Iterator<Timeout> it = bucket.iterator();
+      while (it.hasNext()) {
+        Timeout timeout = it.next();
+        if (timeout.isCanceled()) {
+          it.remove();
+        } else if (timeout.remainingRounds <= 0) {
+          it.remove();
+          timeout.expire();
+        } else {
+          timeout.remainingRounds--;
+        }
+      }
+    }
+  }
+}
@@ -15,42 +15,94 @@ import static com.google.common.base.Strings.emptyToNull;
 import static com.google.common.base.Strings.nullToEmpty;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.IJobChangeListener;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.jface.action.Action;
-import org.eclipse.jface.operation.IRunnableWithProgress;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.jface.resource.ImageDescriptor;
-import org.eclipse.swt.widgets.Display;
-import org.eclipse.ui.progress.IProgressConstants;
+
+import com.google.common.base.Throwables;
 
 import de.baumato.jobs.builder.JobBuilder.JobKind;
 
 final class InternalJob extends Job {
 
-  private static final String PLUGIN_ID = "de.baumato.jobs.builder";
+  static final String PLUGIN_ID = "de.baumato.jobs.builder";
 
   private final Object family;
-  private final IRunnableWithProgress progressRunnable;
+  private final boolean coalesced;
+  private volatile ProgressRunnable progressRunnable;
   private final ImageDescriptor image;
   private final String jobCompletionTitle;
+  private final IStatus okStatus;
+  private Object okFeedbackAction;
   private final UserFeedback userFeedback;
+  private final boolean onVirtualThread;
+  private final Long progressUpdateInterval;
+  private BlockingTimeMonitor blockingTimeMonitor;
+  private ThrottledProgressMonitor throttledMonitor;
+  private final Object cacheKey;
+  private final long cacheTtl;
+  private final Integer maxConcurrency;
+  private final int minConcurrency;
+  private final long targetLatencyNanos;
+  private final Integer dispatchPriority;
+  private final Long timeout;
+  private final Long deadline;
+  private final long timeoutGracePeriod;
+  private final RetryPolicy retryPolicy;
+  private final PeriodicSchedule periodicSchedule;
+  private final ProgressGroup progressGroup;
+  private final int groupWork;
+  private final AtomicBoolean inGroup = new AtomicBoolean();
+  private volatile IProgressMonitor groupShare;
+  private final List<IStatus> failedAttempts = new ArrayList<IStatus>();
   private IStatus jobResult;
+  private volatile long scheduledAt;
+  private volatile long startedAt;
+  private volatile long runNanos;
+  private volatile long blockedNanos;
 
   InternalJob(JobBuilder builder) {
     super(builder.title);
     this.family = firstNonNull(builder.family, builder.title);
     this.progressRunnable = builder.progressRunnable;
+    this.coalesced = builder.coalesceWindow != null;
     this.image = builder.image;
     this.userFeedback = builder.userFeedback;
+    this.onVirtualThread = builder.onVirtualThread;
+    this.progressUpdateInterval = builder.progressUpdateInterval;
+    this.cacheKey = builder.cacheKey;
+    this.cacheTtl = builder.cacheTtl;
     this.jobCompletionTitle = createJobCompletionTitle(builder);
+    this.okStatus = new Status(IStatus.OK, PLUGIN_ID, IStatus.OK, jobCompletionTitle, null);
+    this.maxConcurrency = builder.maxConcurrency;
+    this.minConcurrency = builder.minConcurrency;
+    this.targetLatencyNanos = builder.targetLatencyNanos;
+    this.dispatchPriority = builder.dispatchPriority;
+    this.timeout = builder.timeout;
+    this.deadline = builder.deadline;
+    this.timeoutGracePeriod = builder.timeoutGracePeriod;
+    this.retryPolicy = builder.retryPolicy;
+    this.periodicSchedule = createPeriodicSchedule(builder);
+    this.progressGroup = builder.progressGroup;
+    this.groupWork = builder.groupWork;
     setUser(builder.kind == JobKind.USER);
-    setSystem(builder.kind == JobKind.SYSTEM);
+    setSystem(builder.kind == JobKind.SYSTEM || progressGroup != null);
     initPriority(builder);
-    initJobChangeListener(builder);
+    initJobChangeListeners(builder);
     initSchedulingRule(builder);
+    addJobChangeListener(new Lifecycle());
   }
 
   private String createJobCompletionTitle(JobBuilder builder) {
@@ -58,15 +110,22 @@ final class InternalJob extends Job {
     return firstNonNull(emptyToNull(jct), builder.title + ": Done.");
   }
 
+  private PeriodicSchedule createPeriodicSchedule(JobBuilder builder) {
+    if (builder.period == null) {
+      return null;
+    }
+    return new PeriodicSchedule(this, builder.period.longValue(), builder.fixedRate);
+  }
+
   private void initPriority(JobBuilder builder) {
     if (builder.priority != null) {
       setPriority(builder.priority);
     }
   }
 
-  private void initJobChangeListener(JobBuilder builder) {
-    if (builder.listener != null) {
-      addJobChangeListener(builder.listener);
+  private void initJobChangeListeners(JobBuilder builder) {
+    for (IJobChangeListener listener : builder.listeners) {
+      addJobChangeListener(listener);
     }
   }
 
@@ -81,34 +140,269 @@ final class InternalJob extends Job {
     return this.family.equals(family);
   }
 
+  /**
+   * If a result is cached for this job, the cached result is given to the user feedback and the
+   * job is not scheduled at all. Until it is done, the job is listed in the {@link FamilyIndex}.
+   */
+  @Override
+  public boolean shouldSchedule() {
+    boolean indexed = FamilyIndex.INSTANCE.add(family, this);
+    if (userFeedbackAvailable()) {
+      UserFeedbackExecutor.jobScheduled();
+    }
+    boolean grouped = progressGroup != null && inGroup.compareAndSet(false, true);
+    if (grouped) {
+      groupShare = progressGroup.childScheduled(groupWork);
+    }
+    if (cacheKey != null) {
+      IStatus cachedResult = ResultCache.INSTANCE.get(cacheKey);
+      if (cachedResult != null) {
+        // a job that is already waiting stays indexed and grouped until it is done
+        if (indexed) {
+          FamilyIndex.INSTANCE.remove(family, this);
+        }
+        if (grouped) {
+          leaveGroup(cachedResult);
+        }
+        jobResult = cachedResult;
+        if (userFeedbackAvailable()) {
+          performUserFeedbackImmediately();
+        }
+        if (periodicSchedule != null) {
+          periodicSchedule.finished(cachedResult);
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns <code>true</code> if the concurrency limit of the family and the priority dispatch
+   * queue let this job run now. Otherwise the job is parked and gets woken up later on.
+   */
+  private boolean isAdmitted() {
+    if (maxConcurrency != null
+        && !ConcurrencyLimiter.tryAcquire(family, this, minConcurrency, maxConcurrency.intValue(),
+            targetLatencyNanos)) {
+      return false;
+    }
+    return dispatchPriority == null
+        || PriorityDispatcher.INSTANCE.tryDispatch(this, dispatchPriority.intValue());
+  }
+
+  PeriodicSchedule getPeriodicSchedule() {
+    return periodicSchedule;
+  }
+
+  /**
+   * Replaces the runnable of this job. Used to coalesce submissions while the job is waiting.
+   */
+  void replaceRunnable(ProgressRunnable progressRunnable) {
+    this.progressRunnable = progressRunnable;
+  }
+
   @Override
   protected IStatus run(IProgressMonitor monitor) {
+    if (coalesced) {
+      CoalescedJobs.release(family, this);
+    }
+    if (onVirtualThread && VirtualThreads.isSupported()) {
+      return runOnVirtualThread(monitor);
+    }
+    return execute(monitor);
+  }
+
+  /**
+   * Hands the execution over to a virtual thread and releases the worker thread of the job
+   * manager. The job finishes asynchronously when the virtual thread is done.
+   */
+  private IStatus runOnVirtualThread(final IProgressMonitor monitor) {
+    Thread thread = VirtualThreads.newThread(new Runnable() {
+      @Override
+      public void run() {
+        IStatus result = null;
+        try {
+          result = execute(monitor);
+        } catch (Throwable t) {
+          String msg = String.format("Job '%s' finished with error(s).", getName());
+          result = new Status(IStatus.ERROR, PLUGIN_ID, msg, t);
+          throw Throwables.propagate(t);
+        } finally {
+          // an asynchronously finishing job must always be finished, otherwise it keeps running
+          // and holding its scheduling rule forever
+          done(result);
+        }
+      }
+    });
+    setThread(thread);
+    thread.start();
+    return ASYNC_FINISH;
+  }
+
+  private IStatus execute(IProgressMonitor monitor) {
     jobResult = null;
+    startedAt = System.nanoTime();
+    IProgressMonitor runMonitor = bindBlockingTimeMonitor(monitor);
+    TimeoutWatchdog watchdog = startWatchdogIfRequested();
     try {
       applyImageIfAvailable();
       updateErrorHandlingBehaviour();
-      progressRunnable.run(monitor);
+      progressRunnable.run(throttleIfRequested(addToGroupIfRequested(runMonitor)));
       jobResult = createStatus();
     } catch (InterruptedException e) {
       handleInterruption(e);
     } catch (Exception e) {
       handleError(e);
     } finally {
+      stopWatchdog(watchdog);
+      runNanos = System.nanoTime() - startedAt;
+      blockedNanos = blockingTimeMonitor.getBlockedNanos();
+      boolean retrying = retryIfRequested();
       updateErrorHandlingBehaviour();
-      performUserFeedback();
+      if (!retrying) {
+        cacheResultIfRequested();
+        performUserFeedback();
+      }
     }
     return jobResult;
   }
 
+  /**
+   * Reschedules the job with the delay defined by the retry policy if it failed and may be
+   * retried. In this case the job finishes with a status having code {@link Jobs#RETRYING}. When
+   * the job finally fails after several attempts, the result contains the failures of all
+   * attempts.
+   *
+   * @return <code>true</code> if the job has been rescheduled
+   */
+  private boolean retryIfRequested() {
+    if (retryPolicy == null || jobResult == null) {
+      return false;
+    }
+    if (jobResult.getSeverity() != IStatus.ERROR) {
+      failedAttempts.clear();
+      return false;
+    }
+    failedAttempts.add(jobResult);
+    int attempts = failedAttempts.size();
+    if (attempts < retryPolicy.getMaxAttempts()
+        && retryPolicy.isRetryable(failureOf(jobResult))) {
+      long delay = retryPolicy.delayMillis(attempts);
+      String msg =
+          String.format("Attempt %d of job '%s' failed, retrying in %d ms.", attempts, getName(),
+              delay);
+      jobResult = new Status(IStatus.INFO, PLUGIN_ID, Jobs.RETRYING, msg, null);
+      schedule(delay);
+      return true;
+    }
+    if (attempts > 1) {
+      IStatus[] children = failedAttempts.toArray(new IStatus[attempts]);
+      String msg = String.format("Job '%s' failed %d times.", getName(), attempts);
+      jobResult = new MultiStatus(PLUGIN_ID, IStatus.ERROR, children, msg, null);
+    }
+    failedAttempts.clear();
+    return false;
+  }
+
+  /**
+   * Returns the exception of the given status or the first exception of its children. If there is
+   * none, e.g. for a multi status, the status is wrapped in a <code>CoreException</code>.
+   */
+  private static Throwable failureOf(IStatus status) {
+    Throwable exception = findException(status);
+    return exception != null ? exception : new CoreException(status);
+  }
+
+  private static Throwable findException(IStatus status) {
+    if (status.getException() != null) {
+      return status.getException();
+    }
+    for (IStatus child : status.getChildren()) {
+      Throwable exception = findException(child);
+      if (exception != null) {
+        return exception;
+      }
+    }
+    return null;
+  }
+
+  private void leaveGroup(IStatus result) {
+    if (progressGroup != null && inGroup.compareAndSet(true, false)) {
+      progressGroup.childDone(result);
+    }
+  }
+
+  private IProgressMonitor addToGroupIfRequested(IProgressMonitor monitor) {
+    if (progressGroup == null) {
+      return monitor;
+    }
+    return progressGroup.newChildMonitor(monitor, groupShare);
+  }
+
+  /**
+   * Returns the blocking time monitor of this job bound to the given monitor of the current run.
+   * It is created on the first run and reused by later ones, runs of a job never overlap.
+   */
+  private BlockingTimeMonitor bindBlockingTimeMonitor(IProgressMonitor monitor) {
+    if (blockingTimeMonitor == null) {
+      blockingTimeMonitor = new BlockingTimeMonitor(monitor, this, family);
+    } else {
+      blockingTimeMonitor.bind(monitor);
+    }
+    return blockingTimeMonitor;
+  }
+
+  private IProgressMonitor throttleIfRequested(IProgressMonitor monitor) {
+    if (progressUpdateInterval == null) {
+      return monitor;
+    }
+    if (throttledMonitor == null) {
+      throttledMonitor = new ThrottledProgressMonitor(monitor, progressUpdateInterval.longValue());
+    } else {
+      throttledMonitor.bind(monitor);
+    }
+    return throttledMonitor;
+  }
+
+  private TimeoutWatchdog startWatchdogIfRequested() {
+    long now = System.currentTimeMillis();
+    long remaining = Long.MAX_VALUE;
+    if (timeout != null) {
+      remaining = timeout.longValue();
+    }
+    if (deadline != null) {
+      remaining = Math.min(remaining, deadline.longValue() - now);
+    }
+    if (remaining == Long.MAX_VALUE) {
+      return null;
+    }
+    return TimeoutWatchdog.start(this, remaining, timeoutGracePeriod);
+  }
+
+  private void stopWatchdog(TimeoutWatchdog watchdog) {
+    if (watchdog != null && watchdog.stop()) {
+      String msg = String.format("Job '%s' has been canceled because it timed out.", getName());
+      jobResult = new Status(IStatus.CANCEL, PLUGIN_ID, Jobs.TIMEOUT, msg, null);
+    }
+  }
+
+  private void cacheResultIfRequested() {
+    if (cacheKey != null && jobResult != null && jobResult.isOK()) {
+      ResultCache.INSTANCE.put(cacheKey, jobResult, cacheTtl);
+    }
+  }
+
   private void applyImageIfAvailable() {
-    if (image != null) {
-      setProperty(IProgressConstants.ICON_PROPERTY, image);
+    if (image != null && UiSupport.isWorkbenchAvailable()) {
+      WorkbenchProgress.setIcon(this, image);
     }
   }
 
   private void updateErrorHandlingBehaviour() {
-    setProperty(IProgressConstants.NO_IMMEDIATE_ERROR_PROMPT_PROPERTY,
-        Boolean.valueOf(!shouldShowErrorPromptImmediately()));
+    if (UiSupport.isWorkbenchAvailable()) {
+      WorkbenchProgress.setNoImmediateErrorPrompt(this, !shouldShowErrorPromptImmediately());
+    }
   }
 
   private boolean shouldShowErrorPromptImmediately() {
@@ -118,7 +412,8 @@ final class InternalJob extends Job {
 
   private void performUserFeedback() {
     if (userFeedbackAvailable()) {
-      if (isModal() || userFeedback.performFeedbackImmediately) {
+      if (isModal() || userFeedback.performFeedbackImmediately
+          || !UiSupport.isWorkbenchAvailable()) {
         performUserFeedbackImmediately();
       } else {
         allowUserToGetFeedbackLater();
@@ -139,12 +434,14 @@ final class InternalJob extends Job {
    * background.
    */
   private boolean isModal() {
-    Boolean isModal = (Boolean) getProperty(IProgressConstants.PROPERTY_IN_DIALOG);
-    return isModal == null ? false : isModal.booleanValue();
+    return UiSupport.isWorkbenchAvailable() && WorkbenchProgress.isModal(this);
   }
 
+  /**
+   * Returns the OK status, which is created once so that successful runs do not create a status.
+   */
   private IStatus createStatus() {
-    return new Status(IStatus.OK, PLUGIN_ID, IStatus.OK, jobCompletionTitle, null);
+    return okStatus;
   }
 
   private void handleInterruption(InterruptedException e) {
@@ -157,27 +454,95 @@ final class InternalJob extends Job {
     if (e instanceof InvocationTargetException) {
       t = ((InvocationTargetException) e).getTargetException();
     }
+    if (t instanceof CoreException) {
+      jobResult = ((CoreException) t).getStatus();
+      return;
+    }
     String msg = "Job '%s' finished with error(s).";
     jobResult = new Status(IStatus.ERROR, PLUGIN_ID, msg, t);
   }
 
   private void performUserFeedbackImmediately() {
-    Display.getDefault().asyncExec(new Runnable() {
-      @Override
-      public void run() {
-        userFeedback.performUserFeedback(jobResult, true);
-      }
-    });
+    FeedbackDispatcher.INSTANCE.dispatch(userFeedback, jobResult);
   }
 
   private void allowUserToGetFeedbackLater() {
-    Action userFeedbackAction = new Action() {
+    if (jobResult == okStatus) {
+      if (okFeedbackAction == null) {
+        okFeedbackAction = WorkbenchProgress.createAction(createLaterFeedback(okStatus));
+      }
+      WorkbenchProgress.keepWithAction(this, okFeedbackAction);
+    } else {
+      WorkbenchProgress.keepWithAction(this,
+          WorkbenchProgress.createAction(createLaterFeedback(jobResult)));
+    }
+  }
+
+  private Runnable createLaterFeedback(final IStatus result) {
+    return new Runnable() {
       @Override
       public void run() {
-        userFeedback.performUserFeedback(jobResult, false);
+        userFeedback.performUserFeedback(result, false);
       }
     };
-    setProperty(IProgressConstants.KEEP_PROPERTY, Boolean.TRUE);
-    setProperty(IProgressConstants.ACTION_PROPERTY, userFeedbackAction);
+  }
+
+  /**
+   * Records the execution metrics of this job and publishes its lifecycle events. Parks the job
+   * when it is about to run but not admitted by the concurrency limiter or the priority dispatcher.
+   */
+  private final class Lifecycle extends JobChangeAdapter {
+
+    @Override
+    public void scheduled(IJobChangeEvent event) {
+      scheduledAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(event.getDelay());
+      runNanos = -1;
+      if (periodicSchedule != null) {
+        periodicSchedule.scheduled(event.getDelay());
+      }
+      JobEventBus.INSTANCE.publish(JobEvent.Type.SCHEDULED, InternalJob.this, family, null);
+    }
+
+    @Override
+    public void aboutToRun(IJobChangeEvent event) {
+      if (!isAdmitted()) {
+        // a sleeping job holds no worker thread but can still be canceled like any other job
+        sleep();
+        if (isAdmitted()) {
+          // admitted before falling asleep, so the wake up has been missed
+          wakeUp();
+        }
+      }
+    }
+
+    @Override
+    public void running(IJobChangeEvent event) {
+      JobEventBus.INSTANCE.publish(JobEvent.Type.RUNNING, InternalJob.this, family, null);
+    }
+
+    @Override
+    public void done(IJobChangeEvent event) {
+      JobEventBus.INSTANCE.publish(JobEvent.Type.DONE, InternalJob.this, family,
+          event.getResult());
+      JobMetrics.INSTANCE.record(family, startedAt - scheduledAt, runNanos, blockedNanos,
+          event.getResult());
+      if (Jobs.isRetrying(event.getResult())) {
+        // keeps the dispatch slot and the concurrency permit for the next attempt
+        return;
+      }
+      // the job may have been canceled while waiting for the next attempt
+      failedAttempts.clear();
+      FamilyIndex.INSTANCE.remove(family, InternalJob.this);
+      leaveGroup(event.getResult());
+      if (periodicSchedule != null) {
+        periodicSchedule.finished(event.getResult());
+      }
+      if (dispatchPriority != null) {
+        PriorityDispatcher.INSTANCE.finished(InternalJob.this);
+      }
+      if (maxConcurrency != null) {
+        ConcurrencyLimiter.finished(family, InternalJob.this, runNanos);
+      }
+    }
   }
 }
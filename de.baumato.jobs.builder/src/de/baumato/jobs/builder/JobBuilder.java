@@ -17,8 +17,15 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.jobs.IJobChangeListener;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
@@ -32,6 +39,7 @@ import org.eclipse.jface.resource.ImageDescriptor;
 public class JobBuilder {
 
   private static final String DEFAULT_TITLE = "Operation in progress...";
+  private static final long DEFAULT_TIMEOUT_GRACE_PERIOD = 1000;
 
   public enum JobKind {
     DEFAULT, USER, SYSTEM;
@@ -39,14 +47,32 @@ public class JobBuilder {
 
   String title = DEFAULT_TITLE;
   Object family = null;
-  IRunnableWithProgress progressRunnable = null;
+  ProgressRunnable progressRunnable = null;
   JobKind kind = JobKind.DEFAULT;
   Integer priority = null;
   ImageDescriptor image = null;
   String jobCompletionTitle = null;
   UserFeedback userFeedback = null;
-  IJobChangeListener listener = null;
+  final List<IJobChangeListener> listeners = new ArrayList<IJobChangeListener>();
   ISchedulingRule schedulingRule = null;
+  boolean onVirtualThread = false;
+  Long coalesceWindow = null;
+  Long progressUpdateInterval = null;
+  Object cacheKey = null;
+  long cacheTtl = 0;
+  Integer maxConcurrency = null;
+  int minConcurrency = 1;
+  long targetLatencyNanos = 0;
+  Integer dispatchPriority = null;
+  Long timeout = null;
+  Long deadline = null;
+  long timeoutGracePeriod = DEFAULT_TIMEOUT_GRACE_PERIOD;
+  RetryPolicy retryPolicy = null;
+  Long period = null;
+  String persistentId = null;
+  ProgressGroup progressGroup = null;
+  int groupWork;
+  boolean fixedRate;
 
   /** package private constructor */
   JobBuilder() {}
@@ -131,7 +157,7 @@ public class JobBuilder {
    */
   public JobBuilder runnable(Runnable runnable) {
     this.progressRunnable =
-        new RunnableAdapter(title, checkNotNull(runnable, "Given runnable is null."));
+        new RunnableTask(title, checkNotNull(runnable, "Given runnable is null."));
     return this;
   }
 
@@ -142,10 +168,87 @@ public class JobBuilder {
    * @return this
    */
   public JobBuilder runnable(IRunnableWithProgress runnable) {
+    this.progressRunnable = RunnableWithProgressAdapter.adapt(runnable);
+    return this;
+  }
+
+  /**
+   * Takes a runnable of this bundle, which does not depend on JFace.
+   */
+  JobBuilder progressRunnable(ProgressRunnable runnable) {
     this.progressRunnable = checkNotNull(runnable, "Given runnable is null.");
     return this;
   }
 
+  /**
+   * Takes a callable computing a value in the job. The returned builder allows to build the job as
+   * future, so that dependent work can be chained without blocking a thread. Set all other
+   * properties of the job on this builder before calling this method.
+   *
+   * @param callable the callable to call in the job
+   * @return a builder for the future of the computed value
+   */
+  public <T> FutureJobBuilder<T> supply(Callable<T> callable) {
+    return new FutureJobBuilder<T>(this, checkNotNull(callable, "Given callable is null."));
+  }
+
+  /**
+   * This does the same as {@link #parallel(Executor, Collection)} using a shared executor with one
+   * thread per available processor.
+   *
+   * @param subtasks the subtasks to run in parallel
+   * @return this
+   */
+  public JobBuilder parallel(Collection<? extends IRunnableWithProgress> subtasks) {
+    return parallel(ParallelRunnable.DefaultExecutor.INSTANCE, subtasks);
+  }
+
+  /**
+   * Splits the work of the job into the given subtasks that run in parallel on the given executor
+   * (e.g. a <tt>ForkJoinPool</tt>), while the job waits for them to complete. Each subtask gets its
+   * own progress monitor and the progress of all subtasks rolls up into the job's monitor.
+   * Canceling the job cancels the monitors of all subtasks and skips the subtasks not yet started.
+   * If subtasks fail, the job returns a <tt>MultiStatus</tt> containing all failures.
+   *
+   * @param executor the executor to run the subtasks on
+   * @param subtasks the subtasks to run in parallel
+   * @return this
+   */
+  public JobBuilder parallel(Executor executor,
+      Collection<? extends IRunnableWithProgress> subtasks) {
+    this.progressRunnable =
+        new ParallelRunnable(title, RunnableWithProgressAdapter.adaptAll(subtasks), executor);
+    return this;
+  }
+
+  /**
+   * Runs the job's runnable on a virtual thread if the Java runtime supports them (Java 21 or
+   * later), otherwise this setting is ignored. The worker thread of the job manager is released as
+   * soon as the job starts, so jobs blocking on I/O do not occupy the worker pool. Progress
+   * reporting, cancellation and user feedback work as usual.
+   *
+   * @return this
+   */
+  public JobBuilder onVirtualThread() {
+    this.onVirtualThread = true;
+    return this;
+  }
+
+  /**
+   * Passes the progress reported by the job's runnable to the progress monitor at most once per
+   * given interval. Work and sub task names reported in between are accumulated. Use this for
+   * runnables reporting very fine grained progress to avoid flooding the UI with updates.
+   *
+   * @param interval the minimum time between two progress updates
+   * @param timeUnit the time unit of the interval
+   * @return this
+   */
+  public JobBuilder progressUpdateInterval(long interval, TimeUnit timeUnit) {
+    checkArgument(interval >= 0, "Given interval is negative.");
+    this.progressUpdateInterval = Long.valueOf(timeUnit.toMillis(interval));
+    return this;
+  }
+
   /**
    * This does the same as {@link #userFeedback(String, UserFeedbackRunnable)} but with a
    * default job completion title.
@@ -212,6 +315,25 @@ public class JobBuilder {
     return this;
   }
 
+  /**
+   * Like {@link #immediateUserFeedback(String, UserFeedbackRunnable)}, but the feedback of all
+   * jobs using the same runnable that finished in the meantime is given in one call. Use it if
+   * many jobs finish at about the same time and the user should get one summary instead of one
+   * feedback per job.
+   *
+   * @param jobCompletionTitle, may be null or empty to use the default text
+   * @param userFeedback the runnable to run
+   * @return this
+   */
+  public JobBuilder aggregatedUserFeedback(String jobCompletionTitle,
+      AggregatedUserFeedbackRunnable userFeedback) {
+    this.jobCompletionTitle = jobCompletionTitle;
+    this.userFeedback =
+        new UserFeedback(checkNotNull(userFeedback, "The given user feedback runnable is null."),
+            true);
+    return this;
+  }
+
   /**
    * Sets Job.SHORT as priority which gives the job a higher priority than the default Job.LONG.
    *
@@ -249,15 +371,38 @@ public class JobBuilder {
     return this;
   }
 
+  /**
+   * <p>
+   * Sets a fine grained priority. Jobs with such a priority pass a dispatch queue when they are about
+   * to run. Only a limited number of them runs at the same time, the others are put to sleep and
+   * the waiting job with the highest effective priority is woken up next.
+   * <p>
+   * The effective priority is the given priority plus the aging rate for every second the job has
+   * waited, so jobs with a low priority do not starve under sustained load. Jobs without a fine
+   * grained priority, e.g. interactive jobs, bypass the dispatch queue.
+   *
+   * @see Jobs#configurePriorityDispatch(int, double)
+   * @param priority the priority, higher values are dispatched first
+   * @return this
+   */
+  public JobBuilder priority(int priority) {
+    this.dispatchPriority = Integer.valueOf(priority);
+    return this;
+  }
+
   /**
    * Adds the given listener to the job to be created. Consider to use {@code JobChangeAdapter} for
-   * a more compact notation.
+   * a more compact notation. Can be called several times to add several listeners. Job change
+   * listeners run synchronously in the job manager's threads; to observe many jobs without
+   * slowing them down subscribe to {@link Jobs#events()} instead.
    *
-   * @param listener the listener to add
+   * @param listener the listener to add, ignored if null
    * @return this
    */
   public JobBuilder addJobChangeListener(IJobChangeListener listener) {
-    this.listener = listener;
+    if (listener != null) {
+      this.listeners.add(listener);
+    }
     return this;
   }
 
@@ -286,7 +431,8 @@ public class JobBuilder {
    * be assigned to a job before it is scheduled. This allows the job manager to ensure that the
    * required resources are available before starting the job.
    * <p>
-   * Use only one of: {@link #schedulingRule(ISchedulingRule)}, {@link #runsNotConcurrently(String)}.
+   * Use only one of: {@link #schedulingRule(ISchedulingRule)}, {@link #runsNotConcurrently(String)},
+   * {@link #runsNotConcurrently(IPath)}, {@link #runsNotConcurrently(Object, int)}.
    *
    * @param rule the scheduling rule to set
    * @return this
@@ -302,7 +448,8 @@ public class JobBuilder {
    * all jobs scheduled with this schedulingRuleName do not run concurrently but sequentially. The
    * job title should be set beforehand.
    * <p>
-   * Use only one of: {@link #schedulingRule(ISchedulingRule)}, {@link #runsNotConcurrently(String)}.
+   * Use only one of: {@link #schedulingRule(ISchedulingRule)}, {@link #runsNotConcurrently(String)},
+   * {@link #runsNotConcurrently(IPath)}, {@link #runsNotConcurrently(Object, int)}.
    *
    * @param schedulingRuleName the name scheduling rule
    * @return this
@@ -317,7 +464,8 @@ public class JobBuilder {
    * name ensuring that all jobs scheduled with this schedulingRuleName do not run concurrently but
    * sequentially.
    * <p>
-   * Use only one of: {@link #schedulingRule(ISchedulingRule)}, {@link #runsNotConcurrently(String)}.
+   * Use only one of: {@link #schedulingRule(ISchedulingRule)}, {@link #runsNotConcurrently(String)},
+   * {@link #runsNotConcurrently(IPath)}, {@link #runsNotConcurrently(Object, int)}.
    *
    * @param schedulingRuleName the name scheduling rule
    * @return this
@@ -326,6 +474,270 @@ public class JobBuilder {
     return schedulingRule(new NotConcurrentlyRule(schedulingRuleName));
   }
 
+  /**
+   * <p>
+   * This sets a hierarchical scheduling rule for the given path. Jobs do not run concurrently if
+   * the path of one job is a prefix of the path of the other job. So jobs on <tt>/a/b</tt> and
+   * <tt>/a/c</tt> may run in parallel, but a job on <tt>/a</tt> blocks both.
+   * <p>
+   * Use only one of: {@link #schedulingRule(ISchedulingRule)}, {@link #runsNotConcurrently(String)},
+   * {@link #runsNotConcurrently(IPath)}, {@link #runsNotConcurrently(Object, int)}.
+   *
+   * @param path the path the job works on
+   * @return this
+   */
+  public JobBuilder runsNotConcurrently(IPath path) {
+    return schedulingRule(new PathRule(path));
+  }
+
+  /**
+   * <p>
+   * This sets a striped scheduling rule using the jobs title as lock name. The given key is hashed
+   * into one of the given number of stripes and jobs whose keys fall into the same stripe do not
+   * run concurrently. So jobs with the same key always run sequentially, while at most
+   * <tt>stripes</tt> jobs with different keys run in parallel. The job title should be set
+   * beforehand.
+   * <p>
+   * Use only one of: {@link #schedulingRule(ISchedulingRule)}, {@link #runsNotConcurrently(String)},
+   * {@link #runsNotConcurrently(IPath)}, {@link #runsNotConcurrently(Object, int)}.
+   *
+   * @param key the key the job works on
+   * @param stripes the number of stripes, greater than 0
+   * @return this
+   */
+  public JobBuilder runsNotConcurrently(Object key, int stripes) {
+    return schedulingRule(new StripedRule(title, key, stripes));
+  }
+
+  /**
+   * <p>
+   * Coalesces jobs of the same family (see {@link #family(Object)}) scheduled with
+   * {@link #buildAndSchedule()}. The first submission schedules a job to run after the given
+   * window. Further submissions for the same family arriving before that job starts do not create
+   * new jobs, they replace the runnable of the pending job (last one wins) and return it.
+   * <p>
+   * All other settings are taken from the builder that created the pending job. A coalesced job
+   * cannot be cached by {@link #cachedBy(Object, long, TimeUnit)}.
+   *
+   * @param window the time to wait for further submissions
+   * @param timeUnit the time unit of the window
+   * @return this
+   */
+  public JobBuilder coalesce(long window, TimeUnit timeUnit) {
+    checkArgument(window >= 0, "Given window is negative.");
+    this.coalesceWindow = Long.valueOf(timeUnit.toMillis(window));
+    return this;
+  }
+
+  /**
+   * <p>
+   * Caches the result of the job under the given key when it finishes successfully. If a result
+   * is cached for the key when the job gets scheduled, the job does not run at all: the cached
+   * result is given immediately to the user feedback and the job is not scheduled, so its job
+   * change listeners are not notified.
+   * <p>
+   * The cache is shared by all jobs and keeps the most recently used results.
+   *
+   * @see Jobs#resultCache()
+   * @param key the key identifying the result, not null
+   * @param ttl the time the result is valid
+   * @param timeUnit the time unit of the ttl
+   * @return this
+   */
+  public JobBuilder cachedBy(Object key, long ttl, TimeUnit timeUnit) {
+    checkArgument(ttl >= 0, "Given ttl is negative.");
+    this.cacheKey = checkNotNull(key, "Given key is null.");
+    this.cacheTtl = timeUnit.toMillis(ttl);
+    return this;
+  }
+
+  /**
+   * <p>
+   * Limits the number of jobs of the job's family (see {@link #family(Object)}) that run at the
+   * same time. When the limit is reached, further jobs of the family are parked when they are about
+   * to run: they are put to sleep, so they do not occupy worker threads. A parked job is woken up
+   * as soon as another job of the family finishes. Until then its state is
+   * <code>Job.SLEEPING</code>, so it can be canceled like any other job.
+   * <p>
+   * The limit applies to all jobs of the family built with a limit, the most recently built job
+   * defines it.
+   *
+   * @param maxConcurrency the maximum number of concurrently running jobs, greater than 0
+   * @return this
+   */
+  public JobBuilder maxConcurrency(int maxConcurrency) {
+    return adaptiveConcurrency(maxConcurrency, maxConcurrency, 0, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Does the same as {@link #maxConcurrency(int)} but adapts the limit to the observed run time of
+   * the jobs: while jobs finish within the target latency the limit grows by one per round of jobs
+   * up to the given maximum, when a job takes longer the limit shrinks by ten percent down to the
+   * given minimum.
+   *
+   * @param minConcurrency the lower bound of the limit, greater than 0
+   * @param maxConcurrency the upper bound of the limit, not less than the lower bound
+   * @param targetLatency the run time jobs should not exceed
+   * @param timeUnit the time unit of the target latency
+   * @return this
+   */
+  public JobBuilder adaptiveConcurrency(int minConcurrency, int maxConcurrency,
+      long targetLatency, TimeUnit timeUnit) {
+    checkArgument(minConcurrency > 0, "Given min concurrency must be greater than 0.");
+    checkArgument(maxConcurrency >= minConcurrency,
+        "Given max concurrency must not be less than min concurrency.");
+    checkArgument(targetLatency >= 0, "Given target latency is negative.");
+    this.minConcurrency = minConcurrency;
+    this.maxConcurrency = Integer.valueOf(maxConcurrency);
+    this.targetLatencyNanos = timeUnit.toNanos(targetLatency);
+    return this;
+  }
+
+  /**
+   * <p>
+   * Limits the time the job may run. When the time is up, the job gets canceled. If it is still
+   * running after the grace period (see {@link #timeoutGracePeriod(long, TimeUnit)}), the thread
+   * running it gets interrupted. A job that timed out returns a status with severity
+   * <code>IStatus.CANCEL</code> and code {@link Jobs#TIMEOUT}.
+   * <p>
+   * The time starts when the job starts running. All timeouts share one timer thread.
+   *
+   * @see Jobs#isTimeout(org.eclipse.core.runtime.IStatus)
+   * @param timeout the maximum run time
+   * @param timeUnit the time unit of the timeout
+   * @return this
+   */
+  public JobBuilder timeout(long timeout, TimeUnit timeUnit) {
+    checkArgument(timeout >= 0, "Given timeout is negative.");
+    this.timeout = Long.valueOf(timeUnit.toMillis(timeout));
+    return this;
+  }
+
+  /**
+   * Does the same as {@link #timeout(long, TimeUnit)}, but the job times out at the given point in
+   * time. If both are set, the one elapsing first applies.
+   *
+   * @param deadline the point in time the job must have finished, not null
+   * @return this
+   */
+  public JobBuilder deadline(Date deadline) {
+    this.deadline = Long.valueOf(checkNotNull(deadline, "Given deadline is null.").getTime());
+    return this;
+  }
+
+  /**
+   * Sets the time a job that timed out gets to react to its cancellation before the thread running
+   * it gets interrupted. The default is one second.
+   *
+   * @param gracePeriod the grace period
+   * @param timeUnit the time unit of the grace period
+   * @return this
+   */
+  public JobBuilder timeoutGracePeriod(long gracePeriod, TimeUnit timeUnit) {
+    checkArgument(gracePeriod >= 0, "Given grace period is negative.");
+    this.timeoutGracePeriod = timeUnit.toMillis(gracePeriod);
+    return this;
+  }
+
+  /**
+   * <p>
+   * Runs the job again if it fails, as defined by the given policy. Between two attempts the job
+   * is rescheduled with a delay instead of waiting on a worker thread. When the job finally fails
+   * after several attempts, its result is a <tt>MultiStatus</tt> containing the failures of all
+   * attempts.
+   * <p>
+   * The user feedback is given for the final attempt only. Job change listeners receive a done
+   * event for every attempt, use {@link Jobs#isRetrying(org.eclipse.core.runtime.IStatus)} to
+   * skip the ones of failed attempts.
+   *
+   * @param retryPolicy the retry policy, not null
+   * @return this
+   */
+  public JobBuilder retry(RetryPolicy retryPolicy) {
+    this.retryPolicy = checkNotNull(retryPolicy, "Given retry policy is null.");
+    return this;
+  }
+
+  /**
+   * <p>
+   * Runs the job periodically at a fixed rate, starting when the job is scheduled. The runs are
+   * timed from that start, so the timing does not drift with the run time of the job. If the
+   * previous run has not finished when the next one is due, that tick is skipped and counted as
+   * missed (see {@link Jobs#getMissedTicks(Job)}); runs never pile up.
+   * <p>
+   * All periodic jobs share one timer thread, which is precise to about 10 milliseconds. Use
+   * {@link Jobs#stopPeriodic(Job)} to stop the periodic runs; canceling a run stops them as well,
+   * a run that timed out does not. Use only one of
+   * {@link #fixedRate(long, TimeUnit)} or {@link #fixedDelay(long, TimeUnit)}.
+   *
+   * @param period the time between the starts of two runs, greater than 0
+   * @param timeUnit the time unit of the period
+   * @return this
+   */
+  public JobBuilder fixedRate(long period, TimeUnit timeUnit) {
+    checkArgument(period > 0, "Given period must be greater than 0.");
+    this.period = Long.valueOf(timeUnit.toMillis(period));
+    this.fixedRate = true;
+    return this;
+  }
+
+  /**
+   * Does the same as {@link #fixedRate(long, TimeUnit)}, but the next run starts the given delay
+   * after the previous run has finished.
+   *
+   * @param delay the time between the end of a run and the start of the next one, greater than 0
+   * @param timeUnit the time unit of the delay
+   * @return this
+   */
+  public JobBuilder fixedDelay(long delay, TimeUnit timeUnit) {
+    checkArgument(delay > 0, "Given delay must be greater than 0.");
+    this.period = Long.valueOf(timeUnit.toMillis(delay));
+    this.fixedRate = false;
+    return this;
+  }
+
+  /**
+   * <p>
+   * Makes the job persistent: the given runnable can record checkpoints in the journal set by
+   * {@link Jobs#setJournal(JobJournal)}. If the application crashes or exits before the job is
+   * done, the job stays unfinished in the journal. After a restart
+   * {@link JobJournal#resumeUnfinished(PersistentJobFactory)} creates it again and the runnable
+   * gets its last checkpoint.
+   * <p>
+   * The id identifies the job across restarts; only one job with the same id should run at a
+   * time. The job is completed in the journal when it is done, unless it has been canceled: a
+   * canceled job stays unfinished, see {@link JobJournal#discard(String)}.
+   *
+   * @param id the id of the job, not null
+   * @param runnable the runnable to run
+   * @return this
+   */
+  public JobBuilder persistent(String id, ResumableRunnable runnable) {
+    JobJournal journal = JobJournal.current;
+    checkState(journal != null, "No journal has been set.");
+    this.persistentId = checkNotNull(id, "Given id is null.");
+    PersistentRunnable persistentRunnable =
+        new PersistentRunnable(journal, id, checkNotNull(runnable, "Given runnable is null."));
+    this.progressRunnable = persistentRunnable;
+    return addJobChangeListener(persistentRunnable);
+  }
+
+  /**
+   * Adds the job to the given group: it becomes a system job and its progress is shown as the
+   * given share of the group's work in the group's single progress entry.
+   *
+   * @see ProgressGroup
+   * @param group the group, not null
+   * @param work the share of the group's work done by this job, greater than 0
+   * @return this
+   */
+  public JobBuilder group(ProgressGroup group, int work) {
+    checkArgument(work > 0, "Given work must be greater than 0.");
+    this.progressGroup = checkNotNull(group, "Given group is null.");
+    this.groupWork = work;
+    return this;
+  }
+
   /**
    * Builds the job with behaviour set by this builder.
    *
@@ -333,16 +745,34 @@ public class JobBuilder {
    */
   public Job build() {
     checkState(progressRunnable != null, "The job's runnable is not set.");
+    checkState(coalesceWindow == null || cacheKey == null, "A coalesced job cannot be cached.");
     return new InternalJob(this);
   }
 
+  /**
+   * Builds a job that is scheduled again for every payload submitted to it, see
+   * {@link ReusableJob}. The runnable of this builder is replaced by the payloads, coalescing is
+   * not supported.
+   *
+   * @return the reusable job
+   */
+  public ReusableJob buildReusable() {
+    checkState(coalesceWindow == null, "A reusable job cannot be coalesced.");
+    return new ReusableJob(this);
+  }
+
   /**
    * Builds the job and schedules it. This is useful if you don't want to add job listener before
-   * scheduling.
+   * scheduling. If the builder coalesces jobs, a pending job of the same family may be returned.
    *
+   * @see #coalesce(long, TimeUnit)
    * @return the job
    */
   public Job buildAndSchedule() {
+    if (coalesceWindow != null) {
+      checkState(progressRunnable != null, "The job's runnable is not set.");
+      return CoalescedJobs.schedule(this);
+    }
     Job job = build();
     job.schedule();
     return job;
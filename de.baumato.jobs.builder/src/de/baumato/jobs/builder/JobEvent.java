@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.google.common.base.Objects;
+
+/**
+ * A lifecycle event of a job built by a {@link JobBuilder}.
+ *
+ * @see JobEventBus
+ */
+public final class JobEvent {
+
+  /**
+   * The kind of a {@link JobEvent}.
+   */
+  public enum Type {
+    /** The job has been scheduled. */
+    SCHEDULED,
+    /** The job has started running. */
+    RUNNING,
+    /** The running job waits for a scheduling rule or lock held by another job. */
+    BLOCKED,
+    /** The job has finished, see {@link JobEvent#getStatus()}. */
+    DONE
+  }
+
+  private final long sequence;
+  private final Type type;
+  private final Job job;
+  private final Object family;
+  private final IStatus status;
+  private final long timeMillis;
+
+  JobEvent(long sequence, Type type, Job job, Object family, IStatus status) {
+    this.sequence = sequence;
+    this.type = type;
+    this.job = job;
+    this.family = family;
+    this.status = status;
+    this.timeMillis = System.currentTimeMillis();
+  }
+
+  long getSequence() {
+    return sequence;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public Job getJob() {
+    return job;
+  }
+
+  public Object getFamily() {
+    return family;
+  }
+
+  /**
+   * Returns the result of the job for {@link Type#DONE} events, the reason for
+   * {@link Type#BLOCKED} events and <code>null</code> otherwise.
+   */
+  public IStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * Returns the time the event occurred, in milliseconds since the epoch.
+   */
+  public long getTimeMillis() {
+    return timeMillis;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("type", type).add("job", job.getName())
+        .add("family", family).add("status", status).add("timeMillis", timeMillis).toString();
+  }
+}
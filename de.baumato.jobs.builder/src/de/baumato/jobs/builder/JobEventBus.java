@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * <p>
+ * Publishes the lifecycle events of all jobs built by a {@link JobBuilder}. The events are written
+ * into a ring buffer; every subscription reads them in its own daemon thread. Publishing never
+ * waits for a subscriber, so slow listeners do not delay the job manager. A subscriber that falls
+ * behind by more than the buffer capacity skips the overwritten events, see
+ * {@link Subscription#getDroppedCount()}.
+ * <p>
+ * Nothing is recorded while there are no subscriptions. When the last subscription gets canceled,
+ * the buffer is cleared, so it does not keep finished jobs reachable.
+ *
+ * @see Jobs#events()
+ */
+public final class JobEventBus {
+
+  static final JobEventBus INSTANCE = new JobEventBus(8192);
+
+  private final int mask;
+  private final AtomicReferenceArray<JobEvent> buffer;
+  private final AtomicLong nextSequence = new AtomicLong();
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+  private JobEventBus(int capacity) {
+    this.mask = capacity - 1;
+    this.buffer = new AtomicReferenceArray<JobEvent>(capacity);
+  }
+
+  /**
+   * Subscribes the given listener to all events published from now on. The listener is called in
+   * a new daemon thread until the subscription gets canceled.
+   *
+   * @param listener the listener, not null
+   * @return the subscription
+   */
+  public Subscription subscribe(JobEventListener listener) {
+    Subscription subscription =
+        new Subscription(checkNotNull(listener, "Given listener is null."), nextSequence.get());
+    subscriptions.add(subscription);
+    subscription.thread.start();
+    return subscription;
+  }
+
+  void publish(JobEvent.Type type, Job job, Object family, IStatus status) {
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+    long sequence = nextSequence.getAndIncrement();
+    store(new JobEvent(sequence, type, job, family, status));
+    for (Subscription subscription : subscriptions) {
+      subscription.wakeUp();
+    }
+  }
+
+  /**
+   * Writes the given event into its slot unless a newer event has already wrapped into it, e.g.
+   * because this publisher was delayed after taking its sequence. In that case the given event
+   * counts as overwritten and subscribers skip it.
+   */
+  private void store(JobEvent event) {
+    int index = (int) event.getSequence() & mask;
+    while (true) {
+      JobEvent current = buffer.get(index);
+      if (current != null && current.getSequence() > event.getSequence()) {
+        return;
+      }
+      if (buffer.compareAndSet(index, current, event)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Clears the events published before the given sequence. A subscription created in the meantime
+   * starts at the given sequence or later, so it does not miss them.
+   */
+  private void clearBefore(long sequence) {
+    for (int i = 0; i < buffer.length(); i++) {
+      JobEvent event = buffer.get(i);
+      if (event != null && event.getSequence() < sequence) {
+        buffer.compareAndSet(i, event, null);
+      }
+    }
+  }
+
+  /**
+   * A subscription of a {@link JobEventListener}.
+   */
+  public final class Subscription implements Runnable {
+
+    private final JobEventListener listener;
+    private final Thread thread;
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean canceled;
+    private long cursor;
+
+    Subscription(JobEventListener listener, long cursor) {
+      this.listener = listener;
+      this.cursor = cursor;
+      this.thread = new Thread(this, "Job event subscription");
+      thread.setDaemon(true);
+    }
+
+    /**
+     * Stops delivering events. Events already being delivered are not interrupted.
+     */
+    public void cancel() {
+      canceled = true;
+      subscriptions.remove(this);
+      LockSupport.unpark(thread);
+      long published = nextSequence.get();
+      if (subscriptions.isEmpty()) {
+        clearBefore(published);
+      }
+    }
+
+    /**
+     * Returns the number of events skipped because the listener was too slow.
+     */
+    public long getDroppedCount() {
+      return dropped.get();
+    }
+
+    void wakeUp() {
+      if (sleeping.get() && sleeping.compareAndSet(true, false)) {
+        LockSupport.unpark(thread);
+      }
+    }
+
+    @Override
+    public void run() {
+      while (!canceled) {
+        JobEvent event = next();
+        if (event == null) {
+          sleep();
+        } else {
+          deliver(event);
+        }
+      }
+    }
+
+    /**
+     * Returns the event at the cursor and advances the cursor, or returns <code>null</code> if it
+     * has not been published yet. If the event has already been overwritten, the cursor skips to
+     * the oldest event still in the buffer.
+     */
+    private JobEvent next() {
+      JobEvent event = buffer.get((int) cursor & mask);
+      if (event == null || event.getSequence() < cursor) {
+        return null;
+      }
+      if (event.getSequence() > cursor) {
+        long oldest = Math.max(nextSequence.get() - buffer.length(), cursor + 1);
+        dropped.addAndGet(oldest - cursor);
+        cursor = oldest;
+        return null;
+      }
+      cursor++;
+      return event;
+    }
+
+    /**
+     * Parks until the next publish. The buffer is checked again after announcing the sleep, so
+     * that an event published in between is not missed.
+     */
+    private void sleep() {
+      sleeping.set(true);
+      JobEvent event = buffer.get((int) cursor & mask);
+      if (canceled || (event != null && event.getSequence() >= cursor)) {
+        sleeping.set(false);
+        return;
+      }
+      LockSupport.park(this);
+      sleeping.set(false);
+    }
+
+    private void deliver(JobEvent event) {
+      try {
+        listener.handleEvent(event);
+      } catch (RuntimeException e) {
+        // a failing listener must not end the subscription
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        handler.uncaughtException(thread, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+/**
+ * Receives the events of a {@link JobEventBus} subscription. Runs in the subscription's own thread,
+ * one event after the other.
+ *
+ * @see JobEventBus#subscribe(JobEventListener)
+ */
+public interface JobEventListener {
+
+  /**
+   * Handles the given event.
+   *
+   * @param event the event, not null
+   */
+  public void handleEvent(JobEvent event);
+
+}
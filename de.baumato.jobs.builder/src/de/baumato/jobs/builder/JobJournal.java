@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * <p>
+ * Append-only journal recording the checkpoints of persistent jobs (see
+ * {@link JobBuilder#persistent(String, ResumableRunnable)}), so that jobs which did not finish
+ * because the application crashed or exited can be resumed from their last checkpoint.
+ * <p>
+ * Records are appended to a memory-mapped file, which costs about a memory copy. A flusher thread
+ * forces the file to disk for all records appended in the meantime at once, so that many
+ * checkpoints share one <tt>fsync</tt>. Records torn by a crash are detected by a checksum and
+ * ignored.
+ * <p>
+ * When opened, the journal is compacted to the last checkpoint of each unfinished job.
+ * {@link #close()} the journal when the application stops and before its jobs are canceled:
+ * jobs finishing after the journal has been closed remain unfinished and are resumed. Jobs that
+ * get canceled remain unfinished as well, as they may have been canceled by the shutdown of the
+ * job manager; use {@link #discard(String)} to drop a job that should not be resumed.
+ *
+ * @see Jobs#setJournal(JobJournal)
+ */
+public final class JobJournal {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final byte STARTED = 1;
+  private static final byte CHECKPOINT = 2;
+  private static final byte COMPLETED = 3;
+  private static final int HEADER_SIZE = 8;
+  private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+  private static final long GROUP_COMMIT_MILLIS = 5;
+
+  private final Object lock = new Object();
+  private final Map<String, byte[]> unfinished;
+  private final RandomAccessFile file;
+  private final List<MappedByteBuffer> unforced = new ArrayList<MappedByteBuffer>();
+  private final Thread flusher;
+  private MappedByteBuffer segment;
+  private long segmentStart;
+  private long appended;
+  private long forced;
+  private IOException flushFailure;
+  private boolean closed;
+
+  private JobJournal(File journalFile, Map<String, byte[]> unfinished, long length)
+      throws IOException {
+    this.unfinished = unfinished;
+    this.file = new RandomAccessFile(journalFile, "rw");
+    this.appended = length;
+    this.forced = length;
+    this.segmentStart = length;
+    this.flusher = new Thread(new Flusher(), "JobBuilder journal flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * The journal used by persistent jobs, see {@link Jobs#setJournal(JobJournal)}.
+   */
+  static volatile JobJournal current;
+
+  /**
+   * Opens the journal stored in the given file, or creates it if it does not exist yet.
+   *
+   * @param journalFile the journal file
+   * @return the opened journal
+   * @throws IOException if the journal could not be read or compacted
+   */
+  public static JobJournal open(File journalFile) throws IOException {
+    checkNotNull(journalFile, "Given journal file is null.");
+    File compacted = compactedFileOf(journalFile);
+    if (!journalFile.exists() && compacted.exists() && !compacted.renameTo(journalFile)) {
+      // crashed after deleting the journal but before renaming the compacted one, which is
+      // complete as it has been synced before
+      throw new IOException("Could not recover journal " + journalFile + " from " + compacted);
+    }
+    Map<String, byte[]> unfinished = new LinkedHashMap<String, byte[]>();
+    if (journalFile.exists()) {
+      read(journalFile, unfinished);
+    }
+    long length = compact(journalFile, unfinished);
+    return new JobJournal(journalFile, unfinished, length);
+  }
+
+  /**
+   * Reads the records up to the end of the file or the first torn record.
+   */
+  private static void read(File journalFile, Map<String, byte[]> unfinished) throws IOException {
+    DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+    try {
+      CRC32 crc = new CRC32();
+      while (true) {
+        int length = in.readInt();
+        int checksum = in.readInt();
+        if (length <= 0) {
+          return;
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        crc.reset();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+          return;
+        }
+        apply(ByteBuffer.wrap(body), unfinished);
+      }
+    } catch (EOFException e) {
+      // the end of the last complete record
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void apply(ByteBuffer body, Map<String, byte[]> unfinished) {
+    byte type = body.get();
+    byte[] id = new byte[body.getInt()];
+    body.get(id);
+    int dataLength = body.getInt();
+    byte[] data = null;
+    if (dataLength >= 0) {
+      data = new byte[dataLength];
+      body.get(data);
+    }
+    String jobId = new String(id, UTF_8);
+    if (type == COMPLETED) {
+      unfinished.remove(jobId);
+    } else if (type == CHECKPOINT || !unfinished.containsKey(jobId)) {
+      unfinished.put(jobId, data);
+    }
+  }
+
+  /**
+   * Replaces the journal file by one containing only the last checkpoints of the unfinished jobs.
+   * Where the compacted file cannot replace the journal directly, the journal is deleted first;
+   * {@link #open(File)} recovers from a crash in between.
+   *
+   * @return the length of the compacted journal
+   */
+  private static long compact(File journalFile, Map<String, byte[]> unfinished)
+      throws IOException {
+    File compacted = compactedFileOf(journalFile);
+    FileOutputStream out = new FileOutputStream(compacted);
+    long length = 0;
+    try {
+      for (Map.Entry<String, byte[]> e : unfinished.entrySet()) {
+        ByteBuffer record = encode(CHECKPOINT, e.getKey(), e.getValue());
+        length += record.remaining();
+        out.write(record.array(), 0, record.remaining());
+      }
+      out.getFD().sync();
+    } finally {
+      out.close();
+    }
+    if (!compacted.renameTo(journalFile)) {
+      if (!journalFile.delete() || !compacted.renameTo(journalFile)) {
+        throw new IOException("Could not replace journal " + journalFile);
+      }
+    }
+    return length;
+  }
+
+  private static File compactedFileOf(File journalFile) {
+    return new File(journalFile.getPath() + ".compact");
+  }
+
+  private static ByteBuffer encode(byte type, String jobId, byte[] data) {
+    byte[] id = jobId.getBytes(UTF_8);
+    int bodyLength = 1 + 4 + id.length + 4 + (data == null ? 0 : data.length);
+    ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+    record.putInt(bodyLength);
+    record.putInt(0);
+    record.put(type);
+    record.putInt(id.length);
+    record.put(id);
+    record.putInt(data == null ? -1 : data.length);
+    if (data != null) {
+      record.put(data);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), HEADER_SIZE, bodyLength);
+    record.putInt(4, (int) crc.getValue());
+    record.flip();
+    return record;
+  }
+
+  /**
+   * Returns the ids of the jobs that have not finished yet.
+   */
+  public Set<String> getUnfinishedIds() {
+    synchronized (lock) {
+      return new LinkedHashSet<String>(unfinished.keySet());
+    }
+  }
+
+  /**
+   * Creates the jobs that have not finished yet with the given factory and schedules them. They
+   * resume from their last checkpoint.
+   *
+   * @param factory the factory creating a builder per job id
+   * @return the scheduled jobs
+   */
+  public List<Job> resumeUnfinished(PersistentJobFactory factory) {
+    checkNotNull(factory, "Given factory is null.");
+    List<Job> jobs = new ArrayList<Job>();
+    for (String id : getUnfinishedIds()) {
+      JobBuilder builder = factory.create(id);
+      if (builder != null) {
+        checkState(id.equals(builder.persistentId),
+            "The builder created for job '%s' is not persistent with that id.", id);
+        jobs.add(builder.buildAndSchedule());
+      }
+    }
+    return jobs;
+  }
+
+  /**
+   * Flushes all records to disk and stops recording. Jobs that have not finished yet stay
+   * unfinished in the journal.
+   */
+  public void close() {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      lock.notifyAll();
+    }
+    try {
+      flusher.join();
+      file.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      // everything has been forced to disk by the flusher
+    }
+  }
+
+  /**
+   * Marks the given job as finished, so it is not resumed anymore. Does nothing if the job is not
+   * unfinished.
+   *
+   * @param jobId the id of the job
+   * @throws IOException if the record could not be written
+   */
+  public void discard(String jobId) throws IOException {
+    completed(checkNotNull(jobId, "Given job id is null."));
+  }
+
+  boolean isUnfinished(String jobId) {
+    synchronized (lock) {
+      return unfinished.containsKey(jobId);
+    }
+  }
+
+  byte[] getLastCheckpoint(String jobId) {
+    synchronized (lock) {
+      return unfinished.get(jobId);
+    }
+  }
+
+  void started(String jobId) throws IOException {
+    synchronized (lock) {
+      if (!closed && !unfinished.containsKey(jobId)) {
+        unfinished.put(jobId, null);
+        append(encode(STARTED, jobId, null));
+      }
+    }
+  }
+
+  /**
+   * Appends a checkpoint of the given job.
+   *
+   * @return the position the journal has to be forced to for the checkpoint to be durable
+   */
+  long checkpoint(String jobId, byte[] data) throws IOException {
+    synchronized (lock) {
+      if (closed) {
+        return 0;
+      }
+      unfinished.put(jobId, data);
+      return append(encode(CHECKPOINT, jobId, data));
+    }
+  }
+
+  void completed(String jobId) throws IOException {
+    synchronized (lock) {
+      if (!closed && unfinished.containsKey(jobId)) {
+        unfinished.remove(jobId);
+        append(encode(COMPLETED, jobId, null));
+      }
+    }
+  }
+
+  /**
+   * Waits until the journal has been forced to disk up to the given position.
+   */
+  void awaitForced(long position) throws IOException, InterruptedException {
+    synchronized (lock) {
+      while (forced < position && flushFailure == null) {
+        lock.wait();
+      }
+      if (flushFailure != null) {
+        throw flushFailure;
+      }
+    }
+  }
+
+  /**
+   * Copies the record into the mapped file. Must be called holding the lock.
+   */
+  private long append(ByteBuffer record) throws IOException {
+    if (segment == null || segment.remaining() < record.remaining()) {
+      // the next segment starts directly behind the last record, there must be no gap of zeros
+      segmentStart = appended;
+      segment =
+          file.getChannel().map(MapMode.READ_WRITE, segmentStart,
+              Math.max(SEGMENT_SIZE, record.remaining()));
+    }
+    segment.put(record);
+    if (unforced.isEmpty() || unforced.get(unforced.size() - 1) != segment) {
+      unforced.add(segment);
+    }
+    appended = segmentStart + segment.position();
+    lock.notifyAll();
+    return appended;
+  }
+
+  /**
+   * Forces the appended records to disk, grouping all records appended since the last run.
+   */
+  private final class Flusher implements Runnable {
+
+    @Override
+    public void run() {
+      while (true) {
+        List<MappedByteBuffer> toForce;
+        long position;
+        boolean last;
+        synchronized (lock) {
+          try {
+            while (appended == forced && !closed) {
+              lock.wait();
+            }
+            if (!closed) {
+              // gives concurrent checkpoints the chance to join this group
+              lock.wait(GROUP_COMMIT_MILLIS);
+            }
+          } catch (InterruptedException e) {
+            closed = true;
+          }
+          toForce = new ArrayList<MappedByteBuffer>(unforced);
+          unforced.clear();
+          position = appended;
+          last = closed;
+        }
+        force(toForce, position);
+        if (last) {
+          return;
+        }
+      }
+    }
+
+    private void force(List<MappedByteBuffer> toForce, long position) {
+      IOException failure = null;
+      try {
+        for (MappedByteBuffer buffer : toForce) {
+          buffer.force();
+        }
+        file.getFD().sync();
+      } catch (IOException e) {
+        failure = e;
+      }
+      synchronized (lock) {
+        if (failure != null) {
+          flushFailure = failure;
+        } else {
+          forced = Math.max(forced, position);
+        }
+        lock.notifyAll();
+      }
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.core.runtime.IStatus;
+
+import com.google.common.base.Throwables;
+
+/**
+ * <p>
+ * Execution metrics of all jobs built by a {@link JobBuilder}, aggregated per job family. For each
+ * family the time waiting in the queue, the run time, the time blocked on scheduling rules and the
+ * outcome of the jobs is recorded.
+ * <p>
+ * At most {@value #MAX_FAMILIES} families are kept. When metrics for another family are created, the
+ * metrics of the family that has not recorded a job for the longest time are dropped.
+ * <p>
+ * The metrics can also be accessed via JMX after calling {@link #registerMBean()}.
+ *
+ * @see Jobs#metrics()
+ */
+public final class JobMetrics implements JobMetricsMXBean {
+
+  static final JobMetrics INSTANCE = new JobMetrics();
+
+  /**
+   * The maximum number of families whose metrics are kept.
+   */
+  public static final int MAX_FAMILIES = 1000;
+
+  private static final String OBJECT_NAME = "de.baumato.jobs.builder:type=JobMetrics";
+
+  private final ConcurrentMap<Object, FamilyMetrics> families =
+      new ConcurrentHashMap<Object, FamilyMetrics>();
+
+  private JobMetrics() {}
+
+  void record(Object family, long queueWaitNanos, long runNanos, long blockedNanos,
+      IStatus result) {
+    get(family).record(queueWaitNanos, runNanos, blockedNanos, result);
+  }
+
+  /**
+   * Returns the metrics of the given family. They are created if none have been recorded yet.
+   *
+   * @param family the family
+   * @return the metrics of the family
+   */
+  public FamilyMetrics get(Object family) {
+    FamilyMetrics metrics = families.get(family);
+    if (metrics == null) {
+      FamilyMetrics newMetrics = new FamilyMetrics(String.valueOf(family));
+      metrics = families.putIfAbsent(family, newMetrics);
+      if (metrics == null) {
+        metrics = newMetrics;
+        evictIfFull();
+      }
+    }
+    return metrics;
+  }
+
+  private void evictIfFull() {
+    while (families.size() > MAX_FAMILIES) {
+      Map.Entry<Object, FamilyMetrics> idlest = null;
+      for (Map.Entry<Object, FamilyMetrics> entry : families.entrySet()) {
+        if (idlest == null
+            || entry.getValue().getLastRecordedAt() - idlest.getValue().getLastRecordedAt() < 0) {
+          idlest = entry;
+        }
+      }
+      if (idlest != null) {
+        families.remove(idlest.getKey(), idlest.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the metrics of all families.
+   */
+  public Collection<FamilyMetrics> getAll() {
+    return Collections.unmodifiableCollection(families.values());
+  }
+
+  @Override
+  public String[] getFamilyNames() {
+    List<String> names = new ArrayList<String>();
+    for (FamilyMetrics metrics : families.values()) {
+      names.add(metrics.getName());
+    }
+    return names.toArray(new String[names.size()]);
+  }
+
+  @Override
+  public FamilyMetrics getFamilyMetrics(String familyName) {
+    for (FamilyMetrics metrics : families.values()) {
+      if (metrics.getName().equals(familyName)) {
+        return metrics;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void reset() {
+    families.clear();
+  }
+
+  /**
+   * Registers the metrics as MXBean named <tt>de.baumato.jobs.builder:type=JobMetrics</tt> at the
+   * platform MBean server. Does nothing if it is already registered.
+   */
+  public void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+    } catch (JMException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Unregisters the metrics from the platform MBean server. Does nothing if it is not registered.
+   */
+  public void unregisterMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+/**
+ * Management interface of {@link JobMetrics}.
+ *
+ * @see JobMetrics#registerMBean()
+ */
+public interface JobMetricsMXBean {
+
+  /**
+   * Returns the names of all families for which metrics have been recorded.
+   */
+  String[] getFamilyNames();
+
+  /**
+   * Returns the metrics of the family with the given name or null if there are none.
+   */
+  FamilyMetrics getFamilyMetrics(String familyName);
+
+  /**
+   * Removes all recorded metrics.
+   */
+  void reset();
+}
@@ -13,8 +13,36 @@
  */
 package de.baumato.jobs.builder;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+
 public class Jobs {
 
+  /**
+   * Code of the status returned by jobs that have been canceled because they timed out.
+   *
+   * @see JobBuilder#timeout(long, java.util.concurrent.TimeUnit)
+   */
+  public static final int TIMEOUT = 1;
+
+  /**
+   * Code of the status returned by a failed attempt of a job that is run again.
+   *
+   * @see JobBuilder#retry(RetryPolicy)
+   */
+  public static final int RETRYING = 2;
+
   private Jobs() {}
 
   /**
@@ -43,4 +71,298 @@ public class Jobs {
   public static JobBuilder builder(String title, Runnable runnable) {
     return builder().title(title).runnable(runnable);
   }
+
+  /**
+   * Returns the given template builder configured to run all given runnables in one job. Only
+   * <tt>maxParallelism - 1</tt> additional helper jobs are scheduled to process the runnables in
+   * parallel, which is much cheaper than scheduling one job per runnable. A failing runnable does
+   * not stop the others, the job result is a <tt>MultiStatus</tt> containing all failures.
+   *
+   * @param template the builder defining title, kind, feedback etc. of the batch job
+   * @param runnables the runnables to run
+   * @param maxParallelism the maximum number of runnables processed at the same time
+   * @return the given template builder
+   */
+  public static JobBuilder batch(JobBuilder template, Collection<? extends Runnable> runnables,
+      int maxParallelism) {
+    return template.progressRunnable(new BatchRunnable(template.title, runnables, maxParallelism));
+  }
+
+  /**
+   * Returns the given template builder configured to process the elements of the given source in
+   * chunks of the given size. Only one chunk is held in memory at a time. If the source is a
+   * collection, progress is reported exactly per chunk. Cancellation is checked between chunks.
+   * The source is iterated again if the job runs again.
+   *
+   * @param template the builder defining title, kind, feedback etc. of the streaming job
+   * @param source the elements to process
+   * @param chunkSize the maximum number of elements per chunk
+   * @param processor the processor receiving the chunks in order
+   * @return the given template builder
+   */
+  public static <T> JobBuilder streaming(JobBuilder template, Iterable<? extends T> source,
+      int chunkSize, ChunkProcessor<? super List<T>> processor) {
+    return template.progressRunnable(new StreamingRunnable<List<T>>(template.title,
+        new StreamingRunnable.IterableSource<T>(source, chunkSize), processor));
+  }
+
+  /**
+   * Returns the given template builder configured to read the given channel from its current
+   * position to its end in chunks of the given number of bytes, and to pass them to the processor.
+   * Every run allocates one buffer of the chunk size and passes it for every chunk, so the
+   * processor must not keep it. Progress is reported per chunk and cancellation is checked between chunks.
+   * The channel is neither closed nor is its position changed, it is read with absolute positions
+   * from the position it has when this method is called.
+   *
+   * @param template the builder defining title, kind, feedback etc. of the streaming job
+   * @param source the channel to read
+   * @param chunkSize the maximum number of bytes per chunk
+   * @param processor the processor receiving the chunks in order
+   * @return the given template builder
+   */
+  public static JobBuilder streaming(JobBuilder template, FileChannel source, int chunkSize,
+      ChunkProcessor<? super ByteBuffer> processor) {
+    return template.progressRunnable(new StreamingRunnable<ByteBuffer>(template.title,
+        new StreamingRunnable.ChannelSource(source, chunkSize), processor));
+  }
+
+  /**
+   * Does the same as {@link #streaming(JobBuilder, FileChannel, int, ChunkProcessor)} for the
+   * whole given file. The file is opened when the job runs and closed afterwards.
+   *
+   * @param template the builder defining title, kind, feedback etc. of the streaming job
+   * @param source the file to read
+   * @param chunkSize the maximum number of bytes per chunk
+   * @param processor the processor receiving the chunks in order
+   * @return the given template builder
+   */
+  public static JobBuilder streaming(JobBuilder template, File source, int chunkSize,
+      ChunkProcessor<? super ByteBuffer> processor) {
+    return template.progressRunnable(new StreamingRunnable<ByteBuffer>(template.title,
+        new StreamingRunnable.ChannelSource(source, chunkSize), processor));
+  }
+
+  /**
+   * Does the same as {@link #mappedFile(JobBuilder, File, byte, int, Executor, ChunkProcessor)}
+   * with regions of about 16 MB on one thread per available processor.
+   *
+   * @param template the builder defining title, kind, feedback etc. of the job
+   * @param file the file to process
+   * @param delimiter the byte ending a record, e.g. <tt>'\n'</tt>
+   * @param processor the processor receiving the regions, called concurrently
+   * @return the given template builder
+   */
+  public static JobBuilder mappedFile(JobBuilder template, File file, byte delimiter,
+      ChunkProcessor<? super ByteBuffer> processor) {
+    return mappedFile(template, file, delimiter, MappedFileRunnable.DEFAULT_REGION_SIZE,
+        ParallelRunnable.DefaultExecutor.INSTANCE, processor);
+  }
+
+  /**
+   * <p>
+   * Returns the given template builder configured to map the given file into memory and to process
+   * it in regions that run in parallel on the given executor. Each region starts at a record and
+   * ends directly after a delimiter (or at the end of the file), so records are never split. The
+   * processor gets a read-only buffer mapping the region, the bytes are not copied into the heap.
+   * <p>
+   * Progress is reported by bytes completed. Canceling the job skips the regions not yet started.
+   * Failing regions do not stop the others, the job result is a <tt>MultiStatus</tt> containing all
+   * failures. A single record must not be longer than 2 GB.
+   *
+   * @param template the builder defining title, kind, feedback etc. of the job
+   * @param file the file to process
+   * @param delimiter the byte ending a record, e.g. <tt>'\n'</tt>
+   * @param regionSize the minimum number of bytes per region, except for the last one
+   * @param executor the executor processing the regions
+   * @param processor the processor receiving the regions, called concurrently
+   * @return the given template builder
+   */
+  public static JobBuilder mappedFile(JobBuilder template, File file, byte delimiter,
+      int regionSize, Executor executor, ChunkProcessor<? super ByteBuffer> processor) {
+    return template.progressRunnable(new MappedFileRunnable(template.title, file, delimiter, regionSize,
+        executor, processor));
+  }
+
+  /**
+   * Returns a new group showing the jobs of one operation as a single entry in the progress view.
+   *
+   * @see JobBuilder#group(ProgressGroup, int)
+   * @param title the title of the group's progress entry
+   * @param totalWork the work of the whole group, shared among its jobs
+   * @return a new progress group
+   */
+  public static ProgressGroup progressGroup(String title, int totalWork) {
+    return new ProgressGroup(title, totalWork);
+  }
+
+  /**
+   * Returns a new pipeline running jobs whose dependencies form a directed acyclic graph.
+   *
+   * @see Pipeline
+   * @return a new pipeline
+   */
+  public static Pipeline pipeline() {
+    return new Pipeline();
+  }
+
+  /**
+   * Returns the cache holding the results of jobs built with
+   * {@link JobBuilder#cachedBy(Object, long, java.util.concurrent.TimeUnit)}. It provides hit, miss
+   * and eviction statistics and allows to invalidate results.
+   *
+   * @return the result cache
+   */
+  public static ResultCache resultCache() {
+    return ResultCache.INSTANCE;
+  }
+
+  /**
+   * Returns the bus publishing the lifecycle events of all jobs built by a {@link JobBuilder}.
+   *
+   * @return the job event bus
+   */
+  public static JobEventBus events() {
+    return JobEventBus.INSTANCE;
+  }
+
+  /**
+   * Returns the execution metrics of all jobs built by a {@link JobBuilder}, aggregated per job
+   * family.
+   *
+   * @return the job metrics
+   */
+  public static JobMetrics metrics() {
+    return JobMetrics.INSTANCE;
+  }
+
+  /**
+   * Configures the dispatch queue for jobs with a fine grained priority. By default one job per
+   * available processor is dispatched at the same time and the priority of waiting jobs grows by 1
+   * per second.
+   *
+   * @see JobBuilder#priority(int)
+   * @param maxDispatchedJobs the number of jobs running at the same time
+   * @param agingPerSecond the priority a waiting job gains per second
+   */
+  public static void configurePriorityDispatch(int maxDispatchedJobs, double agingPerSecond) {
+    PriorityDispatcher.INSTANCE.configure(maxDispatchedJobs, agingPerSecond);
+  }
+
+  /**
+   * Checks if the given job result denotes a job that has been canceled because it timed out.
+   *
+   * @param status the job result
+   * @return <code>true</code> if the job timed out
+   */
+  public static boolean isTimeout(IStatus status) {
+    return status != null && status.getSeverity() == IStatus.CANCEL
+        && status.getCode() == TIMEOUT && InternalJob.PLUGIN_ID.equals(status.getPlugin());
+  }
+
+  /**
+   * Checks if the given job result denotes a failed attempt of a job that is run again. Job change
+   * listeners receive a done event for each attempt, this allows them to wait for the final one.
+   *
+   * @param status the job result
+   * @return <code>true</code> if the job is run again
+   */
+  public static boolean isRetrying(IStatus status) {
+    return status != null && status.getSeverity() == IStatus.INFO
+        && status.getCode() == RETRYING && InternalJob.PLUGIN_ID.equals(status.getPlugin());
+  }
+
+  /**
+   * Sets the executor running the user feedback of finished jobs (see
+   * {@link JobBuilder#userFeedback(UserFeedbackRunnable)}). By default the feedback runs in the UI
+   * thread if there is a display, otherwise directly in the thread finishing the job. Headless
+   * applications and tests may set their own executor.
+   *
+   * @param executor the executor, not null
+   */
+  public static void setUserFeedbackExecutor(Executor executor) {
+    UserFeedbackExecutor.set(executor);
+  }
+
+  /**
+   * Sets the journal recording the checkpoints of persistent jobs.
+   *
+   * @see JobBuilder#persistent(String, ResumableRunnable)
+   * @param journal the journal, not null
+   */
+  public static void setJournal(JobJournal journal) {
+    JobJournal.current = checkNotNull(journal, "Given journal is null.");
+  }
+
+  /**
+   * Stops the periodic runs of the given job. A run in progress is not canceled.
+   *
+   * @see JobBuilder#fixedRate(long, java.util.concurrent.TimeUnit)
+   * @see JobBuilder#fixedDelay(long, java.util.concurrent.TimeUnit)
+   * @param job a job built with a period
+   */
+  public static void stopPeriodic(Job job) {
+    periodicScheduleOf(job).stop();
+  }
+
+  /**
+   * Returns the number of periodic runs of the given job that have been skipped because the
+   * previous run had not finished yet.
+   *
+   * @param job a job built with a period
+   * @return the number of missed ticks
+   */
+  public static long getMissedTicks(Job job) {
+    return periodicScheduleOf(job).getMissedTicks();
+  }
+
+  private static PeriodicSchedule periodicScheduleOf(Job job) {
+    PeriodicSchedule schedule =
+        job instanceof InternalJob ? ((InternalJob) job).getPeriodicSchedule() : null;
+    checkArgument(schedule != null, "Given job is not periodic.");
+    return schedule;
+  }
+
+  /**
+   * Cancels all scheduled jobs of the given family that have been built by a {@link JobBuilder}.
+   * Unlike <code>IJobManager.cancel(Object)</code> this does not ask every job whether it belongs
+   * to the family, the jobs are looked up in an index. Jobs parked by a concurrency limit or
+   * waiting for priority dispatch are sleeping and are canceled as well.
+   *
+   * @see JobBuilder#family(Object)
+   * @param family the family, which is the title of the job if none has been set
+   * @return the number of jobs canceled
+   */
+  public static int cancelFamily(Object family) {
+    List<InternalJob> jobs = FamilyIndex.INSTANCE.getJobs(family);
+    for (InternalJob job : jobs) {
+      job.cancel();
+    }
+    return jobs.size();
+  }
+
+  /**
+   * Waits until all scheduled jobs of the given family that have been built by a
+   * {@link JobBuilder} are done, but at most for the given time.
+   *
+   * @param family the family, which is the title of the job if none has been set
+   * @param timeout the maximum time to wait
+   * @param timeUnit the time unit of the timeout
+   * @return <code>true</code> if all jobs are done, <code>false</code> if the time elapsed before
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public static boolean joinFamily(Object family, long timeout, TimeUnit timeUnit)
+      throws InterruptedException {
+    return FamilyIndex.INSTANCE.awaitEmpty(family, timeUnit.toNanos(timeout));
+  }
+
+  /**
+   * Returns the number of scheduled jobs of the given family that have been built by a
+   * {@link JobBuilder} and are not done yet, including parked ones.
+   *
+   * @param family the family, which is the title of the job if none has been set
+   * @return the number of jobs
+   */
+  public static int countFamily(Object family) {
+    return FamilyIndex.INSTANCE.count(family);
+  }
 }
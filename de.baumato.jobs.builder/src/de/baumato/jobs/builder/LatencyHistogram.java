@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Objects;
+
+/**
+ * Lock free histogram of durations in microseconds. Like an HDR histogram the buckets grow
+ * exponentially and every power of two is split into 8 linear sub buckets, so every recorded value
+ * is reported with a relative error of at most 12.5 percent.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+  private static final int BUCKETS = LINEAR_LIMIT + (64 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /** package private constructor */
+  LatencyHistogram() {}
+
+  void recordNanos(long nanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    counts.incrementAndGet(bucketOf(micros));
+    count.incrementAndGet();
+    sum.addAndGet(micros);
+    long currentMax;
+    while (micros > (currentMax = max.get()) && !max.compareAndSet(currentMax, micros)) {
+      // retry
+    }
+  }
+
+  private static int bucketOf(long micros) {
+    if (micros < LINEAR_LIMIT) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long highestValueOf(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+    int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+    int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ((SUB_BUCKETS + subBucket + 1L) << shift) - 1;
+  }
+
+  /**
+   * Returns the number of recorded values.
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Returns the mean of all recorded values in microseconds.
+   */
+  public long getMean() {
+    long c = count.get();
+    return c == 0 ? 0 : sum.get() / c;
+  }
+
+  /**
+   * Returns the highest recorded value in microseconds.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  public long getMedian() {
+    return getValueAtPercentile(50);
+  }
+
+  public long getP90() {
+    return getValueAtPercentile(90);
+  }
+
+  public long getP99() {
+    return getValueAtPercentile(99);
+  }
+
+  /**
+   * Returns the value in microseconds below which the given percentage of recorded values fall.
+   *
+   * @param percentile the percentile between 0 and 100
+   * @return the value at the percentile in microseconds
+   */
+  public long getValueAtPercentile(double percentile) {
+    checkArgument(percentile >= 0 && percentile <= 100, "Given percentile is not in [0, 100].");
+    long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long threshold = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= threshold) {
+        return Math.min(highestValueOf(bucket), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("count", getCount()).add("mean", getMean())
+        .add("p50", getMedian()).add("p99", getP99()).add("max", getMax()).toString();
+  }
+}
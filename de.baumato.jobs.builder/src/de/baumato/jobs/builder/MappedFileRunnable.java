@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Maps a file into memory and processes it in regions that run in parallel. The regions end after
+ * a delimiter, so that no record is split between two regions. The processor reads the mapped
+ * regions directly, nothing is copied into the heap. Progress is weighted by the bytes of the
+ * regions.
+ */
+class MappedFileRunnable implements ProgressRunnable {
+
+  static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+
+  private static final int DELIMITER_SCAN_BUFFER_SIZE = 8 * 1024;
+
+  private final String title;
+  private final File file;
+  private final byte delimiter;
+  private final int regionSize;
+  private final Executor executor;
+  private final ChunkProcessor<? super ByteBuffer> processor;
+
+  MappedFileRunnable(String title, File file, byte delimiter, int regionSize, Executor executor,
+      ChunkProcessor<? super ByteBuffer> processor) {
+    checkArgument(regionSize > 0, "Given region size must be greater than 0.");
+    this.title = checkNotNull(title);
+    this.file = checkNotNull(file, "Given file is null.");
+    this.delimiter = delimiter;
+    this.regionSize = regionSize;
+    this.executor = checkNotNull(executor, "Given executor is null.");
+    this.processor = checkNotNull(processor, "Given processor is null.");
+  }
+
+  @Override
+  public void run(IProgressMonitor monitor) throws InvocationTargetException,
+      InterruptedException {
+    RandomAccessFile raf;
+    try {
+      raf = new RandomAccessFile(file, "r");
+    } catch (IOException e) {
+      throw new InvocationTargetException(e);
+    }
+    try {
+      FileChannel channel = raf.getChannel();
+      List<long[]> regions = split(channel);
+      long bytesPerTick = channel.size() / (Integer.MAX_VALUE / 2) + 1;
+      List<ProgressRunnable> subtasks = new ArrayList<ProgressRunnable>(regions.size());
+      int[] ticks = new int[regions.size()];
+      for (int i = 0; i < regions.size(); i++) {
+        long[] region = regions.get(i);
+        subtasks.add(new Region(channel, region[0], region[1]));
+        ticks[i] = (int) Math.max(1, (region[1] - region[0]) / bytesPerTick);
+      }
+      new ParallelRunnable(title, subtasks, ticks, executor).run(monitor);
+    } catch (IOException e) {
+      throw new InvocationTargetException(e);
+    } finally {
+      closeQuietly(raf);
+    }
+  }
+
+  /**
+   * Splits the file into regions of about the region size. Each region except the last ends
+   * directly after a delimiter.
+   *
+   * @return the start and end offsets of the regions
+   */
+  private List<long[]> split(FileChannel channel) throws IOException {
+    List<long[]> regions = new ArrayList<long[]>();
+    long size = channel.size();
+    ByteBuffer scanBuffer = ByteBuffer.allocate(DELIMITER_SCAN_BUFFER_SIZE);
+    long start = 0;
+    while (start < size) {
+      long end = start + regionSize >= size ? size : endOfRecord(channel, start + regionSize,
+          scanBuffer);
+      regions.add(new long[] {start, end});
+      start = end;
+    }
+    return regions;
+  }
+
+  /**
+   * Returns the offset after the first delimiter at or behind the given position, or the file size
+   * if there is none.
+   */
+  private long endOfRecord(FileChannel channel, long position, ByteBuffer scanBuffer)
+      throws IOException {
+    long offset = position;
+    while (true) {
+      scanBuffer.clear();
+      int read = channel.read(scanBuffer, offset);
+      if (read < 0) {
+        return channel.size();
+      }
+      for (int i = 0; i < read; i++) {
+        if (scanBuffer.get(i) == delimiter) {
+          return offset + i + 1;
+        }
+      }
+      offset += read;
+    }
+  }
+
+  private static void closeQuietly(RandomAccessFile raf) {
+    try {
+      raf.close();
+    } catch (IOException e) {
+      // the mapped regions stay valid after closing the file
+    }
+  }
+
+  /**
+   * Maps one region of the file and passes it to the processor.
+   */
+  private final class Region implements ProgressRunnable {
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+
+    Region(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public void run(IProgressMonitor monitor) throws InvocationTargetException {
+      monitor.beginTask(title, 1);
+      try {
+        processor.process(channel.map(MapMode.READ_ONLY, start, end - start));
+        monitor.worked(1);
+      } catch (Exception e) {
+        throw new InvocationTargetException(e);
+      } finally {
+        monitor.done();
+      }
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Splits the work of a job into subtasks that run on an executor. Each subtask gets its own
+ * monitor whose progress rolls up into the job's monitor. Canceling the job cancels the monitors of
+ * all subtasks, subtasks that have not been started yet are skipped.
+ */
+class ParallelRunnable implements ProgressRunnable {
+
+  private static final int TICKS_PER_SUBTASK = 1000;
+  private static final long PROGRESS_POLL_MILLIS = 100;
+
+  private final String title;
+  private final List<ProgressRunnable> subtasks;
+  private final int[] ticks;
+  private final Executor executor;
+
+  ParallelRunnable(String title, Collection<? extends ProgressRunnable> subtasks,
+      Executor executor) {
+    this(title, subtasks, null, executor);
+  }
+
+  /**
+   * Creates a runnable whose subtasks contribute the given amount of ticks to the job's progress,
+   * so that they can be weighted by the work they do. If the ticks are null, every subtask
+   * contributes the same amount.
+   */
+  ParallelRunnable(String title, Collection<? extends ProgressRunnable> subtasks,
+      int[] ticks, Executor executor) {
+    checkNotNull(subtasks, "Given subtasks are null.");
+    checkArgument(!subtasks.contains(null), "Given subtasks contain null.");
+    checkArgument(ticks == null || ticks.length == subtasks.size(),
+        "Given ticks do not match the subtasks.");
+    this.title = checkNotNull(title);
+    this.subtasks = new ArrayList<ProgressRunnable>(subtasks);
+    this.ticks = ticks != null ? ticks.clone() : defaultTicks(subtasks.size());
+    this.executor = checkNotNull(executor, "Given executor is null.");
+  }
+
+  private static int[] defaultTicks(int count) {
+    int[] ticks = new int[count];
+    Arrays.fill(ticks, TICKS_PER_SUBTASK);
+    return ticks;
+  }
+
+  @Override
+  public void run(IProgressMonitor monitor) throws InvocationTargetException,
+      InterruptedException {
+    monitor.beginTask(title, totalTicks());
+    ProgressAccumulator progress = new ProgressAccumulator();
+    Queue<IStatus> failures = new ConcurrentLinkedQueue<IStatus>();
+    try {
+      CountDownLatch finished = new CountDownLatch(subtasks.size());
+      for (int i = 0; i < subtasks.size(); i++) {
+        submit(new Subtask(subtasks.get(i), ticks[i], progress, finished, failures), finished,
+            failures);
+      }
+      awaitSubtasks(finished, progress, monitor);
+      if (progress.isCanceled()) {
+        throw new InterruptedException();
+      }
+      throwFailuresIfAny(failures);
+    } finally {
+      // stops the subtasks if the job ends early, e.g. because its thread got interrupted
+      progress.cancel();
+      monitor.done();
+    }
+  }
+
+  private int totalTicks() {
+    int total = 0;
+    for (int t : ticks) {
+      total += t;
+    }
+    return total;
+  }
+
+  private void submit(Subtask subtask, CountDownLatch finished, Queue<IStatus> failures) {
+    try {
+      executor.execute(subtask);
+    } catch (RejectedExecutionException e) {
+      addFailure(failures, e);
+      finished.countDown();
+    }
+  }
+
+  private void awaitSubtasks(CountDownLatch finished, ProgressAccumulator progress,
+      IProgressMonitor monitor) throws InterruptedException {
+    while (!finished.await(PROGRESS_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+      if (monitor.isCanceled()) {
+        progress.cancel();
+      }
+      progress.drainTo(monitor);
+    }
+    progress.drainTo(monitor);
+  }
+
+  private static void addFailure(Queue<IStatus> failures, Throwable t) {
+    if (t instanceof CoreException) {
+      failures.add(((CoreException) t).getStatus());
+    } else {
+      failures.add(new Status(IStatus.ERROR, InternalJob.PLUGIN_ID, t.getMessage(), t));
+    }
+  }
+
+  private void throwFailuresIfAny(Queue<IStatus> failures) throws InvocationTargetException {
+    if (!failures.isEmpty()) {
+      IStatus[] children = failures.toArray(new IStatus[failures.size()]);
+      String msg =
+          String.format("%d of %d subtasks of '%s' failed.", children.length, subtasks.size(),
+              title);
+      MultiStatus status =
+          new MultiStatus(InternalJob.PLUGIN_ID, IStatus.ERROR, children, msg, null);
+      throw new InvocationTargetException(new CoreException(status));
+    }
+  }
+
+  private final class Subtask implements Runnable {
+
+    private final ProgressRunnable runnable;
+    private final int ticks;
+    private final ProgressAccumulator progress;
+    private final CountDownLatch finished;
+    private final Queue<IStatus> failures;
+
+    Subtask(ProgressRunnable runnable, int ticks, ProgressAccumulator progress,
+        CountDownLatch finished, Queue<IStatus> failures) {
+      this.runnable = runnable;
+      this.ticks = ticks;
+      this.progress = progress;
+      this.finished = finished;
+      this.failures = failures;
+    }
+
+    @Override
+    public void run() {
+      IProgressMonitor monitor = progress.newChild(ticks);
+      try {
+        if (!progress.isCanceled()) {
+          runnable.run(monitor);
+        }
+      } catch (InterruptedException e) {
+        progress.cancel();
+      } catch (InvocationTargetException e) {
+        addFailure(failures, e.getTargetException());
+      } catch (RuntimeException e) {
+        addFailure(failures, e);
+      } finally {
+        monitor.done();
+        finished.countDown();
+      }
+    }
+  }
+
+  /**
+   * Lazily creates the executor used if none has been given. It uses one daemon thread per
+   * available processor.
+   */
+  static final class DefaultExecutor {
+
+    static final ExecutorService INSTANCE = Executors.newFixedThreadPool(Runtime.getRuntime()
+        .availableProcessors(), new ThreadFactory() {
+
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "JobBuilder parallel worker " + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    private DefaultExecutor() {}
+  }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+
+import com.google.common.base.Objects;
+
+/**
+ * Jobs scheduled with this rule do not run concurrently if the path of one job is a prefix of the
+ * path of the other job. So jobs on <tt>/a/b</tt> and <tt>/a/c</tt> may run in parallel, but a job
+ * on <tt>/a</tt> blocks both.
+ */
+class PathRule implements ISchedulingRule {
+
+  private final IPath path;
+
+  public PathRule(IPath path) {
+    this.path = checkNotNull(path);
+  }
+
+  @Override
+  public boolean contains(ISchedulingRule rule) {
+    if (rule == this) {
+      return true;
+    }
+    if (rule instanceof PathRule) {
+      return path.isPrefixOf(((PathRule) rule).path);
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isConflicting(ISchedulingRule rule) {
+    if (rule instanceof PathRule) {
+      IPath that = ((PathRule) rule).path;
+      return path.isPrefixOf(that) || that.isPrefixOf(path);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("path", path).toString();
+  }
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+
+import de.baumato.jobs.builder.HashedWheelTimer.Timeout;
+
+/**
+ * <p>
+ * Schedules a job periodically on the {@link HashedWheelTimer}. The period starts when the job is
+ * scheduled the first time.
+ * <p>
+ * At fixed rate the ticks are computed from that start, not from the actual run times, so the
+ * timing does not drift. At fixed delay the next tick is one period after the previous run
+ * finished. If the job has not finished when a tick is due, the tick is skipped and counted as
+ * missed instead of queuing another run.
+ * <p>
+ * The schedule stops when a run gets canceled, e.g. by <tt>Job.cancel()</tt> or
+ * <tt>IJobManager.cancel(Object)</tt>, but not when a run timed out.
+ */
+final class PeriodicSchedule {
+
+  private final Job job;
+  private final long periodNanos;
+  private final boolean fixedRate;
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final AtomicBoolean active = new AtomicBoolean();
+  private final AtomicLong missedTicks = new AtomicLong();
+  private volatile boolean stopped;
+  private volatile Timeout timeout;
+  private long nextTick;
+
+  PeriodicSchedule(Job job, long periodMillis, boolean fixedRate) {
+    this.job = job;
+    this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+    this.fixedRate = fixedRate;
+  }
+
+  /**
+   * Called whenever the job gets scheduled. The first call starts the period.
+   */
+  void scheduled(long delayMillis) {
+    active.set(true);
+    if (fixedRate && started.compareAndSet(false, true)) {
+      synchronized (this) {
+        nextTick = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis) + periodNanos;
+        arm(nextTick);
+      }
+    }
+  }
+
+  /**
+   * Called when a run of the job has finished (not between the attempts of a retried job) or a
+   * run was not needed at all.
+   *
+   * @param result the result of the run
+   */
+  void finished(IStatus result) {
+    active.set(false);
+    if (result != null && result.getSeverity() == IStatus.CANCEL && !Jobs.isTimeout(result)) {
+      stop();
+      return;
+    }
+    if (!fixedRate) {
+      arm(System.nanoTime() + periodNanos);
+    }
+  }
+
+  private void arm(long tickNanos) {
+    if (!stopped) {
+      timeout = HashedWheelTimer.INSTANCE.newTimeout(new Runnable() {
+        @Override
+        public void run() {
+          tick();
+        }
+      }, tickNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void tick() {
+    if (stopped) {
+      return;
+    }
+    if (active.compareAndSet(false, true)) {
+      job.schedule();
+    } else {
+      missedTicks.incrementAndGet();
+    }
+    if (fixedRate) {
+      scheduleNextTick();
+    }
+  }
+
+  /**
+   * Advances to the next tick. Ticks that already passed while the timer was late are counted as
+   * missed.
+   */
+  private synchronized void scheduleNextTick() {
+    long now = System.nanoTime();
+    nextTick += periodNanos;
+    while (nextTick - now <= 0) {
+      nextTick += periodNanos;
+      missedTicks.incrementAndGet();
+    }
+    arm(nextTick);
+  }
+
+  void stop() {
+    stopped = true;
+    Timeout current = timeout;
+    if (current != null) {
+      current.cancel();
+    }
+  }
+
+  long getMissedTicks() {
+    return missedTicks.get();
+  }
+}
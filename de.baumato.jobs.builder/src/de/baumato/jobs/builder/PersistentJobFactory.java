@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+/**
+ * Creates the builders of unfinished persistent jobs when they are resumed.
+ *
+ * @see JobJournal#resumeUnfinished(PersistentJobFactory)
+ */
+public interface PersistentJobFactory {
+
+  /**
+   * Returns a builder for the job with the given id, configured with
+   * {@link JobBuilder#persistent(String, ResumableRunnable)} using that id. Returns
+   * <code>null</code> if the job is unknown and should not be resumed; it stays in the journal.
+   *
+   * @param id the id of the unfinished job
+   * @return the builder or <code>null</code>
+   */
+  public JobBuilder create(String id);
+
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+/**
+ * Runs a {@link ResumableRunnable} with the checkpoint journaled for its job and marks the job as
+ * completed in the journal when it is done. A canceled job is not marked: the job manager cancels
+ * all jobs when it shuts down, and those jobs have to be resumed.
+ */
+class PersistentRunnable extends JobChangeAdapter implements ProgressRunnable {
+
+  private final JobJournal journal;
+  private final String jobId;
+  private final ResumableRunnable runnable;
+
+  PersistentRunnable(JobJournal journal, String jobId, ResumableRunnable runnable) {
+    this.journal = journal;
+    this.jobId = jobId;
+    this.runnable = runnable;
+  }
+
+  @Override
+  public void run(IProgressMonitor monitor) throws InvocationTargetException,
+      InterruptedException {
+    try {
+      journal.started(jobId);
+      runnable.run(monitor, journal.getLastCheckpoint(jobId), new Checkpointer(journal, jobId));
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new InvocationTargetException(e);
+    }
+  }
+
+  @Override
+  public void done(IJobChangeEvent event) {
+    IStatus result = event.getResult();
+    if (Jobs.isRetrying(result) || result == null || result.getSeverity() == IStatus.CANCEL) {
+      return;
+    }
+    try {
+      journal.completed(jobId);
+    } catch (IOException e) {
+      // the job is resumed once more, which it must tolerate anyway after a crash
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+  }
+}
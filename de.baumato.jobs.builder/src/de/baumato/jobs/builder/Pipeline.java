@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+/**
+ * <p>
+ * Runs jobs whose dependencies form a directed acyclic graph. Every stage is scheduled as soon as
+ * all stages it depends on have finished successfully, so independent stages run concurrently.
+ * <p>
+ * If a stage fails or is canceled, all running stages are canceled and the remaining stages are
+ * not scheduled anymore.
+ *
+ * <pre>
+ * Pipeline pipeline = Jobs.pipeline()
+ *     .stage("compile", compileJobBuilder)
+ *     .stage("test", testJobBuilder, "compile")
+ *     .stage("docs", docsJobBuilder, "compile")
+ *     .stage("package", packageJobBuilder, "test", "docs")
+ *     .start();
+ * </pre>
+ */
+public class Pipeline {
+
+  private final Map<String, Stage> stages = new LinkedHashMap<String, Stage>();
+  private final Queue<IStatus> failures = new ConcurrentLinkedQueue<IStatus>();
+  private final AtomicBoolean aborted = new AtomicBoolean();
+  private final AtomicInteger remaining = new AtomicInteger();
+  private List<Stage> topologicalOrder;
+  private CountDownLatch finished;
+  private volatile IStatus result;
+
+  /** package private constructor */
+  Pipeline() {}
+
+  /**
+   * Adds a stage to the pipeline. The stage runs after all given stages finished successfully.
+   * Stages may depend on stages added later on. The job of a stage must run exactly once, so its
+   * builder must neither cache results nor run periodically.
+   *
+   * @param id the unique id of the stage
+   * @param builder the builder of the stage's job
+   * @param dependsOn the ids of the stages this stage depends on
+   * @return this
+   */
+  public Pipeline stage(String id, JobBuilder builder, String... dependsOn) {
+    checkState(topologicalOrder == null, "The pipeline has already been started.");
+    checkNotNull(id, "Given id is null.");
+    checkArgument(!stages.containsKey(id), "Stage '%s' has already been added.", id);
+    checkNotNull(builder, "Given builder is null.");
+    checkNotNull(dependsOn, "Given dependencies are null.");
+    checkState(builder.cacheKey == null, "Cached jobs cannot be pipeline stages.");
+    checkState(builder.period == null, "Periodic jobs cannot be pipeline stages.");
+    stages.put(id, new Stage(id, builder, dependsOn));
+    return this;
+  }
+
+  /**
+   * Builds the jobs of all stages and schedules the stages not depending on other stages.
+   *
+   * @return this
+   * @throws IllegalArgumentException if a stage depends on an unknown stage or the dependencies
+   *         contain a cycle
+   */
+  public Pipeline start() {
+    checkState(topologicalOrder == null, "The pipeline has already been started.");
+    checkState(!stages.isEmpty(), "The pipeline has no stages.");
+    linkStages();
+    topologicalOrder = sortTopologically();
+    remaining.set(stages.size());
+    finished = new CountDownLatch(stages.size());
+    for (Stage stage : stages.values()) {
+      stage.build();
+    }
+    for (Stage stage : stages.values()) {
+      if (stage.predecessors.isEmpty()) {
+        stage.schedule();
+      }
+    }
+    return this;
+  }
+
+  private void linkStages() {
+    for (Stage stage : stages.values()) {
+      for (String dependency : stage.dependsOn) {
+        Stage predecessor = stages.get(dependency);
+        checkArgument(predecessor != null, "Stage '%s' depends on unknown stage '%s'.", stage.id,
+            dependency);
+        stage.predecessors.add(predecessor);
+        predecessor.successors.add(stage);
+      }
+      stage.pendingPredecessors.set(stage.predecessors.size());
+    }
+  }
+
+  private List<Stage> sortTopologically() {
+    Map<Stage, Integer> inDegrees = new LinkedHashMap<Stage, Integer>();
+    List<Stage> sorted = new ArrayList<Stage>();
+    for (Stage stage : stages.values()) {
+      inDegrees.put(stage, Integer.valueOf(stage.predecessors.size()));
+      if (stage.predecessors.isEmpty()) {
+        sorted.add(stage);
+      }
+    }
+    for (int i = 0; i < sorted.size(); i++) {
+      for (Stage successor : sorted.get(i).successors) {
+        int inDegree = inDegrees.get(successor).intValue() - 1;
+        inDegrees.put(successor, Integer.valueOf(inDegree));
+        if (inDegree == 0) {
+          sorted.add(successor);
+        }
+      }
+    }
+    checkArgument(sorted.size() == stages.size(),
+        "The dependencies of the stages contain a cycle.");
+    return sorted;
+  }
+
+  /**
+   * Cancels all running stages. Stages that have not been scheduled yet will not be scheduled.
+   */
+  public void cancel() {
+    checkState(topologicalOrder != null, "The pipeline has not been started.");
+    abort();
+  }
+
+  /**
+   * Waits until all stages have finished or have been skipped.
+   *
+   * @throws InterruptedException if the thread has been interrupted while waiting
+   */
+  public void join() throws InterruptedException {
+    checkState(topologicalOrder != null, "The pipeline has not been started.");
+    finished.await();
+  }
+
+  /**
+   * Waits at most the given time until all stages have finished or have been skipped.
+   *
+   * @return <code>true</code> if the pipeline has finished, <code>false</code> if the time elapsed
+   * @throws InterruptedException if the thread has been interrupted while waiting
+   */
+  public boolean join(long timeout, TimeUnit timeUnit) throws InterruptedException {
+    checkState(topologicalOrder != null, "The pipeline has not been started.");
+    return finished.await(timeout, timeUnit);
+  }
+
+  /**
+   * Returns the result of the pipeline or null if it has not finished yet. The result is a
+   * <tt>MultiStatus</tt> containing the results of all failed or canceled stages.
+   *
+   * @return the result or null
+   */
+  public IStatus getResult() {
+    return result;
+  }
+
+  /**
+   * Returns the run time of the longest chain of dependent stages. Only the time the stages have
+   * been running is taken into account, not the time they waited to be run. Comparing it with the
+   * overall run time of the pipeline shows how well independent stages overlap.
+   *
+   * @return the critical path time in milliseconds
+   */
+  public long getCriticalPathMillis() {
+    checkState(topologicalOrder != null, "The pipeline has not been started.");
+    Map<Stage, Long> pathNanos = new LinkedHashMap<Stage, Long>();
+    long criticalPath = 0;
+    for (Stage stage : topologicalOrder) {
+      long longestPredecessorPath = 0;
+      for (Stage predecessor : stage.predecessors) {
+        longestPredecessorPath =
+            Math.max(longestPredecessorPath, pathNanos.get(predecessor).longValue());
+      }
+      long path = longestPredecessorPath + stage.runNanos();
+      pathNanos.put(stage, Long.valueOf(path));
+      criticalPath = Math.max(criticalPath, path);
+    }
+    return TimeUnit.NANOSECONDS.toMillis(criticalPath);
+  }
+
+  private void abort() {
+    if (aborted.compareAndSet(false, true)) {
+      for (Stage stage : stages.values()) {
+        stage.skipOrCancel();
+      }
+    }
+  }
+
+  private void stageFinished(Stage stage, IStatus stageResult) {
+    if (stageResult.getSeverity() == IStatus.ERROR || stageResult.getSeverity() == IStatus.CANCEL) {
+      failures.add(stageResult);
+      abort();
+    } else {
+      for (Stage successor : stage.successors) {
+        if (successor.pendingPredecessors.decrementAndGet() == 0) {
+          successor.schedule();
+        }
+      }
+    }
+    countDown();
+  }
+
+  private void countDown() {
+    if (remaining.decrementAndGet() == 0) {
+      result = createResult();
+    }
+    finished.countDown();
+  }
+
+  private IStatus createResult() {
+    if (failures.isEmpty()) {
+      return new Status(IStatus.OK, InternalJob.PLUGIN_ID, "Pipeline finished.");
+    }
+    IStatus[] children = failures.toArray(new IStatus[failures.size()]);
+    int severity = IStatus.CANCEL;
+    for (IStatus child : children) {
+      if (child.getSeverity() == IStatus.ERROR) {
+        severity = IStatus.ERROR;
+      }
+    }
+    String msg = String.format("%d of %d stages failed or have been canceled.", children.length,
+        stages.size());
+    return new MultiStatus(InternalJob.PLUGIN_ID, severity, children, msg, null);
+  }
+
+  private final class Stage extends JobChangeAdapter {
+
+    final String id;
+    final JobBuilder builder;
+    final List<String> dependsOn;
+    final List<Stage> predecessors = new ArrayList<Stage>();
+    final List<Stage> successors = new ArrayList<Stage>();
+    final AtomicInteger pendingPredecessors = new AtomicInteger();
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    Job job;
+    volatile long startNanos;
+    volatile long endNanos;
+
+    Stage(String id, JobBuilder builder, String[] dependsOn) {
+      this.id = id;
+      this.builder = builder;
+      this.dependsOn = Arrays.asList(dependsOn);
+    }
+
+    void build() {
+      job = builder.build();
+      job.addJobChangeListener(this);
+    }
+
+    void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        if (aborted.get()) {
+          countDown();
+        } else {
+          job.schedule();
+        }
+      }
+    }
+
+    void skipOrCancel() {
+      if (scheduled.compareAndSet(false, true)) {
+        countDown();
+      } else {
+        job.cancel();
+      }
+    }
+
+    long runNanos() {
+      return startNanos == 0 || endNanos == 0 ? 0 : endNanos - startNanos;
+    }
+
+    @Override
+    public void running(IJobChangeEvent event) {
+      startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void done(IJobChangeEvent event) {
+      if (Jobs.isRetrying(event.getResult())) {
+        return;
+      }
+      endNanos = System.nanoTime();
+      stageFinished(this, event.getResult());
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+
+/**
+ * <p>
+ * Dispatch queue for jobs built with {@link JobBuilder#priority(int)}. Only a limited number of
+ * these jobs runs at the same time. A job is checked when it is about to run, the others are put to
+ * sleep and are woken up by their effective priority.
+ * <p>
+ * The effective priority of a waiting job grows by the aging rate per second it waits. As all jobs
+ * age at the same rate, the order of two waiting jobs never changes and the effective priority can
+ * be expressed by a fixed key: <tt>priority - agingRate * enqueueTime</tt>.
+ */
+final class PriorityDispatcher {
+
+  static final PriorityDispatcher INSTANCE = new PriorityDispatcher();
+
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final long epoch = System.nanoTime();
+  private final Set<InternalJob> waitingJobs = new HashSet<InternalJob>();
+  private final Set<InternalJob> dispatchedJobs = new HashSet<InternalJob>();
+  private PriorityQueue<Waiting> waiting = new PriorityQueue<Waiting>(16, new ByKey());
+  private int maxDispatched = Runtime.getRuntime().availableProcessors();
+  private double agingPerSecond = 1;
+  private long sequence;
+
+  private PriorityDispatcher() {}
+
+  /**
+   * Sets the number of jobs running at the same time and the aging rate. Waiting jobs are woken up
+   * right away if the new limit allows it.
+   */
+  void configure(int maxDispatched, double agingPerSecond) {
+    checkArgument(maxDispatched > 0, "Given max dispatched jobs must be greater than 0.");
+    checkArgument(agingPerSecond >= 0, "Given aging rate is negative.");
+    List<InternalJob> next;
+    synchronized (this) {
+      this.maxDispatched = maxDispatched;
+      this.agingPerSecond = agingPerSecond;
+      PriorityQueue<Waiting> requeued = new PriorityQueue<Waiting>(16, new ByKey());
+      for (Waiting w : waiting) {
+        requeued.add(new Waiting(w.job, w.priority, w.enqueuedAt, w.sequence));
+      }
+      waiting = requeued;
+      next = dispatchWhileSlotsAvailable();
+    }
+    wakeUpAll(next);
+  }
+
+  /**
+   * Returns <code>true</code> if the given job may run now, otherwise it waits in the dispatch
+   * queue and has to put itself to sleep. A job checked again while it is waiting is queued only
+   * once. A job that is already dispatched, e.g. because it is retried, stays dispatched until
+   * {@link #finished(InternalJob)} is called for it.
+   */
+  boolean tryDispatch(InternalJob job, int priority) {
+    boolean dispatchNow = false;
+    List<InternalJob> others = new ArrayList<InternalJob>();
+    synchronized (this) {
+      if (dispatchedJobs.contains(job)) {
+        return true;
+      }
+      if (waitingJobs.add(job)) {
+        waiting.add(new Waiting(job, priority, System.nanoTime(), sequence++));
+      }
+      for (InternalJob next : dispatchWhileSlotsAvailable()) {
+        if (next == job) {
+          dispatchNow = true;
+        } else {
+          others.add(next);
+        }
+      }
+    }
+    wakeUpAll(others);
+    return dispatchNow;
+  }
+
+  /**
+   * Called when a job with a fine grained priority is done. If it has been dispatched, the waiting
+   * job with the highest effective priority is dispatched. If it has been waiting, e.g. because it
+   * got canceled while sleeping, it is removed from the queue.
+   */
+  void finished(InternalJob job) {
+    List<InternalJob> next = new ArrayList<InternalJob>();
+    synchronized (this) {
+      if (dispatchedJobs.remove(job)) {
+        next = dispatchWhileSlotsAvailable();
+      } else if (waitingJobs.remove(job)) {
+        for (Iterator<Waiting> it = waiting.iterator(); it.hasNext();) {
+          if (it.next().job == job) {
+            it.remove();
+            break;
+          }
+        }
+      }
+    }
+    wakeUpAll(next);
+  }
+
+  private List<InternalJob> dispatchWhileSlotsAvailable() {
+    List<InternalJob> jobs = new ArrayList<InternalJob>();
+    while (dispatchedJobs.size() < maxDispatched && !waiting.isEmpty()) {
+      InternalJob job = waiting.poll().job;
+      waitingJobs.remove(job);
+      dispatchedJobs.add(job);
+      jobs.add(job);
+    }
+    return jobs;
+  }
+
+  private static void wakeUpAll(List<InternalJob> jobs) {
+    for (InternalJob job : jobs) {
+      // does nothing for a job canceled in the meantime, its done event releases the slot
+      job.wakeUp();
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return Objects.toStringHelper(this).add("dispatched", dispatchedJobs.size())
+        .add("maxDispatched", maxDispatched).add("waiting", waiting.size())
+        .add("agingPerSecond", agingPerSecond).toString();
+  }
+
+  private final class Waiting {
+
+    final InternalJob job;
+    final int priority;
+    final long enqueuedAt;
+    final long sequence;
+    final double key;
+
+    Waiting(InternalJob job, int priority, long enqueuedAt, long sequence) {
+      this.job = job;
+      this.priority = priority;
+      this.enqueuedAt = enqueuedAt;
+      this.sequence = sequence;
+      this.key = priority - agingPerSecond * ((enqueuedAt - epoch) / NANOS_PER_SECOND);
+    }
+  }
+
+  /**
+   * Orders by descending key, jobs with the same key in the order they have been queued.
+   */
+  private static final class ByKey implements Comparator<Waiting> {
+
+    @Override
+    public int compare(Waiting w1, Waiting w2) {
+      int byKey = Double.compare(w2.key, w1.key);
+      if (byKey != 0) {
+        return byKey;
+      }
+      return w1.sequence < w2.sequence ? -1 : (w1.sequence == w2.sequence ? 0 : 1);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Collects the progress of child monitors that are used concurrently by several threads. The
+ * children only add to an atomic counter, the owner of the parent monitor periodically drains the
+ * collected ticks into it. So the parent monitor, which is not thread safe, is only used by one
+ * thread.
+ */
+class ProgressAccumulator {
+
+  private final AtomicLong worked = new AtomicLong();
+  private volatile boolean canceled;
+  private long reported;
+
+  /**
+   * Returns a new child monitor contributing the given amount of ticks to the parent monitor. The
+   * child may only be used by one thread at a time.
+   */
+  IProgressMonitor newChild(int ticks) {
+    return new ChildMonitor(ticks);
+  }
+
+  /**
+   * Reports the ticks collected since the last call to the given monitor. Must always be called
+   * by the same thread.
+   */
+  void drainTo(IProgressMonitor monitor) {
+    long current = worked.get();
+    if (current > reported) {
+      monitor.worked((int) (current - reported));
+      reported = current;
+    }
+  }
+
+  long getWorked() {
+    return worked.get();
+  }
+
+  void cancel() {
+    canceled = true;
+  }
+
+  boolean isCanceled() {
+    return canceled;
+  }
+
+  private final class ChildMonitor implements IProgressMonitor {
+
+    private final int ticks;
+    private double scale;
+    private double done;
+    private long reportedTicks;
+
+    ChildMonitor(int ticks) {
+      this.ticks = ticks;
+    }
+
+    @Override
+    public void beginTask(String name, int totalWork) {
+      // a child may be run again, e.g. when retried; ticks already reported are not reported twice
+      scale = totalWork > 0 ? ticks / (double) totalWork : 0;
+      done = 0;
+    }
+
+    @Override
+    public void worked(int work) {
+      internalWorked(work);
+    }
+
+    @Override
+    public void internalWorked(double work) {
+      done += work;
+      report(Math.min(ticks, (long) (done * scale)));
+    }
+
+    @Override
+    public void done() {
+      report(ticks);
+    }
+
+    private void report(long currentTicks) {
+      if (currentTicks > reportedTicks) {
+        worked.addAndGet(currentTicks - reportedTicks);
+        reportedTicks = currentTicks;
+      }
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return canceled;
+    }
+
+    @Override
+    public void setCanceled(boolean value) {
+      if (value) {
+        cancel();
+      }
+    }
+
+    @Override
+    public void setTaskName(String name) {}
+
+    @Override
+    public void subTask(String name) {}
+  }
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * <p>
+ * Shows the jobs of one logical operation as a single entry in the progress view. The jobs added to
+ * the group (see {@link JobBuilder#group(ProgressGroup, int)}) become system jobs; the group
+ * schedules one parent job with the title of the group. Like with <tt>SubMonitor</tt>, each child
+ * job gets a share of the group's work and its progress is scaled into that share.
+ * <p>
+ * The children add their progress to an atomic counter without any locking, the parent job drains
+ * it into its monitor periodically. Canceling the parent job cancels the monitors of all children.
+ * The parent job is done when all children are done and either all work of the group has been
+ * given to children or the group has been closed. Its result contains the errors of the children.
+ * A group is used for one operation only.
+ *
+ * @see Jobs#progressGroup(String, int)
+ */
+public final class ProgressGroup {
+
+  private static final long PROGRESS_POLL_MILLIS = 100;
+
+  private final String title;
+  private final int totalWork;
+  private final ProgressAccumulator progress = new ProgressAccumulator();
+  private final AtomicInteger activeChildren = new AtomicInteger();
+  private final AtomicLong assignedWork = new AtomicLong();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final Queue<IStatus> failures = new ConcurrentLinkedQueue<IStatus>();
+  private final Job parent;
+  private volatile boolean closed;
+
+  ProgressGroup(String title, int totalWork) {
+    checkArgument(totalWork > 0, "Given total work must be greater than 0.");
+    this.title = checkNotNull(title, "Given title is null.");
+    this.totalWork = totalWork;
+    this.parent = new Parent();
+  }
+
+  /**
+   * Declares that no further children are added. The parent job finishes as soon as the running
+   * children are done, even if not all work of the group has been given to children.
+   */
+  public void close() {
+    closed = true;
+  }
+
+  /**
+   * Returns the parent job showing the progress of the group, e.g. to join or cancel it.
+   */
+  public Job getParent() {
+    return parent;
+  }
+
+  /**
+   * Called when a child job gets scheduled. Schedules the parent job with the first child.
+   *
+   * @return the share of the child in the group's progress, to be used for all runs until the
+   *         child is done, including retried attempts
+   */
+  IProgressMonitor childScheduled(int work) {
+    activeChildren.incrementAndGet();
+    assignedWork.addAndGet(work);
+    if (started.compareAndSet(false, true)) {
+      parent.schedule();
+    }
+    return progress.newChild(work);
+  }
+
+  /**
+   * Called when a child job is done or it has been decided not to run it.
+   */
+  void childDone(IStatus result) {
+    if (result != null && result.getSeverity() == IStatus.ERROR) {
+      failures.add(result);
+    }
+    activeChildren.decrementAndGet();
+  }
+
+  /**
+   * Returns a monitor for one run of a child job, reporting to the given share of the group.
+   */
+  IProgressMonitor newChildMonitor(IProgressMonitor jobMonitor, IProgressMonitor groupShare) {
+    return new ChildMonitor(jobMonitor, groupShare);
+  }
+
+  private boolean isFinished() {
+    // reads the work first: a child adding the last work has been counted as active before
+    boolean allAssigned = closed || assignedWork.get() >= totalWork;
+    return allAssigned && activeChildren.get() == 0;
+  }
+
+  /**
+   * The job showing the progress of the group.
+   */
+  private final class Parent extends Job {
+
+    Parent() {
+      super(title);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      monitor.beginTask(title, totalWork);
+      try {
+        while (!isFinished()) {
+          if (monitor.isCanceled()) {
+            progress.cancel();
+            return Status.CANCEL_STATUS;
+          }
+          progress.drainTo(monitor);
+          Thread.sleep(PROGRESS_POLL_MILLIS);
+        }
+        return createResult();
+      } catch (InterruptedException e) {
+        progress.cancel();
+        return Status.CANCEL_STATUS;
+      } finally {
+        monitor.done();
+      }
+    }
+
+    private IStatus createResult() {
+      if (failures.isEmpty()) {
+        return Status.OK_STATUS;
+      }
+      IStatus[] children = failures.toArray(new IStatus[failures.size()]);
+      String msg = String.format("%d jobs of '%s' failed.", children.length, title);
+      return new MultiStatus(InternalJob.PLUGIN_ID, IStatus.ERROR, children, msg, null);
+    }
+  }
+
+  /**
+   * Reports the progress of a child job both to its own monitor and to the group. The child is
+   * canceled if either is canceled.
+   */
+  private final class ChildMonitor extends ProgressMonitorWrapper {
+
+    private final IProgressMonitor groupShare;
+
+    ChildMonitor(IProgressMonitor jobMonitor, IProgressMonitor groupShare) {
+      super(jobMonitor);
+      this.groupShare = groupShare;
+    }
+
+    @Override
+    public void beginTask(String name, int totalWork) {
+      super.beginTask(name, totalWork);
+      groupShare.beginTask(name, totalWork);
+    }
+
+    @Override
+    public void worked(int work) {
+      internalWorked(work);
+    }
+
+    @Override
+    public void internalWorked(double work) {
+      super.internalWorked(work);
+      groupShare.internalWorked(work);
+    }
+
+    @Override
+    public void done() {
+      super.done();
+      groupShare.done();
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return super.isCanceled() || groupShare.isCanceled();
+    }
+  }
+}
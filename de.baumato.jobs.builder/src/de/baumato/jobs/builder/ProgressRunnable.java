@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * The work of a job. It has the same contract as JFace's <tt>IRunnableWithProgress</tt> but does
+ * not depend on JFace, so the core of this bundle also runs without it.
+ *
+ * @see RunnableWithProgressAdapter
+ */
+interface ProgressRunnable {
+
+  /**
+   * Runs the work.
+   *
+   * @param monitor the progress monitor to use to display progress and receive requests for
+   *        cancelation
+   * @throws InvocationTargetException if the work fails, wrapping the cause
+   * @throws InterruptedException if the work has been canceled
+   */
+  void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException;
+}
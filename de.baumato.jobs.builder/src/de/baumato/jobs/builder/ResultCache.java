@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IStatus;
+
+import com.google.common.base.Objects;
+
+/**
+ * Least recently used cache for the results of jobs built with
+ * {@link JobBuilder#cachedBy(Object, long, java.util.concurrent.TimeUnit)}.
+ *
+ * @see Jobs#resultCache()
+ */
+public final class ResultCache {
+
+  private static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+  static final ResultCache INSTANCE = new ResultCache();
+
+  private final Map<Object, CachedResult> entries =
+      new LinkedHashMap<Object, CachedResult>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, CachedResult> eldest) {
+          if (size() > maximumSize) {
+            evictionCount++;
+            return true;
+          }
+          return false;
+        }
+      };
+
+  private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  private ResultCache() {}
+
+  /**
+   * Returns the cached result for the given key or null if there is none or it has expired.
+   */
+  synchronized IStatus get(Object key) {
+    CachedResult entry = entries.get(key);
+    if (entry != null && entry.isExpired()) {
+      entries.remove(key);
+      entry = null;
+    }
+    if (entry == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return entry.result;
+  }
+
+  synchronized void put(Object key, IStatus result, long ttlMillis) {
+    entries.put(key, new CachedResult(result, TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+  }
+
+  /**
+   * Sets the maximum number of cached results. If the cache is full, the least recently used
+   * result is evicted.
+   *
+   * @param maximumSize the maximum size, greater than 0
+   */
+  public synchronized void setMaximumSize(int maximumSize) {
+    checkArgument(maximumSize > 0, "Given maximum size must be greater than 0.");
+    this.maximumSize = maximumSize;
+    while (entries.size() > maximumSize) {
+      entries.remove(entries.keySet().iterator().next());
+      evictionCount++;
+    }
+  }
+
+  public synchronized int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Removes the cached result for the given key, so that the next job with this key runs.
+   *
+   * @param key the key to remove
+   */
+  public synchronized void invalidate(Object key) {
+    entries.remove(key);
+  }
+
+  /**
+   * Removes all cached results.
+   */
+  public synchronized void invalidateAll() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the number of results removed because the cache was full. Expired and invalidated
+   * results are not counted.
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return Objects.toStringHelper(this).add("size", entries.size()).add("hits", hitCount)
+        .add("misses", missCount).add("evictions", evictionCount).toString();
+  }
+
+  private static final class CachedResult {
+
+    final IStatus result;
+    final long cachedAt = System.nanoTime();
+    final long ttlNanos;
+
+    /**
+     * The time to live is compared with the elapsed time instead of computing the expiry time,
+     * which would overflow for long times to live.
+     */
+    CachedResult(IStatus result, long ttlNanos) {
+      this.result = result;
+      this.ttlNanos = ttlNanos;
+    }
+
+    boolean isExpired() {
+      return System.nanoTime() - cachedAt >= ttlNanos;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * The work of a persistent job, which records checkpoints to be resumed from after a crash or
+ * restart.
+ *
+ * @see JobBuilder#persistent(String, ResumableRunnable)
+ */
+public interface ResumableRunnable {
+
+  /**
+   * Runs the job, starting from the given checkpoint if there is one.
+   *
+   * @param monitor the progress monitor of the job
+   * @param lastCheckpoint the state recorded by the last checkpoint of an earlier, unfinished run
+   *        of the job, or <code>null</code> to start from the beginning
+   * @param checkpointer records the state reached so far
+   * @throws Exception if the job fails; an <tt>InterruptedException</tt> if it has been canceled
+   */
+  public void run(IProgressMonitor monitor, byte[] lastCheckpoint, Checkpointer checkpointer)
+      throws Exception;
+
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+
+/**
+ * <p>
+ * Defines how often and when a failing job is run again. The delay between two attempts grows
+ * exponentially and is randomized by a jitter, so that many jobs failing at the same time do not
+ * retry at the same time.
+ *
+ * <pre>
+ * RetryPolicy.maxAttempts(5)
+ *     .backoff(100, 10000, TimeUnit.MILLISECONDS)
+ *     .jitter(0.2)
+ *     .retryOn(isTransientFailure);
+ * </pre>
+ *
+ * @see JobBuilder#retry(RetryPolicy)
+ */
+public final class RetryPolicy {
+
+  private static final Random RANDOM = new Random();
+
+  private final int maxAttempts;
+  private long initialBackoffMillis = 100;
+  private long maxBackoffMillis = 30000;
+  private double multiplier = 2;
+  private double jitter = 0.2;
+  private Predicate<Throwable> retryOn = null;
+
+  private RetryPolicy(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Returns a new policy running a failing job at most the given number of times, including the
+   * first attempt. By default the backoff starts with 100 milliseconds, doubles with every attempt
+   * up to 30 seconds and is randomized by 20 percent. Every exception is retried.
+   *
+   * @param maxAttempts the maximum number of attempts, greater than 0
+   * @return the policy
+   */
+  public static RetryPolicy maxAttempts(int maxAttempts) {
+    checkArgument(maxAttempts > 0, "Given max attempts must be greater than 0.");
+    return new RetryPolicy(maxAttempts);
+  }
+
+  /**
+   * Sets the delay before the second attempt and the maximum delay between two attempts. The
+   * delay is doubled with every attempt.
+   *
+   * @param initialBackoff the delay before the second attempt
+   * @param maxBackoff the maximum delay
+   * @param timeUnit the time unit of the delays
+   * @return this
+   */
+  public RetryPolicy backoff(long initialBackoff, long maxBackoff, TimeUnit timeUnit) {
+    checkArgument(initialBackoff >= 0, "Given initial backoff is negative.");
+    checkArgument(maxBackoff >= initialBackoff,
+        "Given max backoff must not be less than initial backoff.");
+    this.initialBackoffMillis = timeUnit.toMillis(initialBackoff);
+    this.maxBackoffMillis = timeUnit.toMillis(maxBackoff);
+    return this;
+  }
+
+  /**
+   * Sets the factor the delay grows with every attempt. The default is 2.
+   *
+   * @param multiplier the factor, at least 1
+   * @return this
+   */
+  public RetryPolicy multiplier(double multiplier) {
+    checkArgument(multiplier >= 1, "Given multiplier must be at least 1.");
+    this.multiplier = multiplier;
+    return this;
+  }
+
+  /**
+   * Sets the jitter. A jitter of 0.2 randomizes every delay by up to 20 percent in either
+   * direction.
+   *
+   * @param jitter the jitter between 0 and 1
+   * @return this
+   */
+  public RetryPolicy jitter(double jitter) {
+    checkArgument(jitter >= 0 && jitter <= 1, "Given jitter is not in [0, 1].");
+    this.jitter = jitter;
+    return this;
+  }
+
+  /**
+   * Retries only failures caused by exceptions matching the given predicate.
+   *
+   * @param retryOn the predicate, not null
+   * @return this
+   */
+  public RetryPolicy retryOn(Predicate<Throwable> retryOn) {
+    this.retryOn = checkNotNull(retryOn, "Given predicate is null.");
+    return this;
+  }
+
+  int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  boolean isRetryable(Throwable failure) {
+    return retryOn == null || (failure != null && retryOn.apply(failure));
+  }
+
+  /**
+   * Returns the delay before the next attempt.
+   *
+   * @param failedAttempts the number of failed attempts so far, at least 1
+   */
+  long delayMillis(int failedAttempts) {
+    double backoff = initialBackoffMillis * Math.pow(multiplier, failedAttempts - 1);
+    backoff = Math.min(backoff, maxBackoffMillis);
+    double randomized = backoff * (1 - jitter + 2 * jitter * RANDOM.nextDouble());
+    return Math.max(0, Math.round(randomized));
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("maxAttempts", maxAttempts)
+        .add("initialBackoffMillis", initialBackoffMillis).add("maxBackoffMillis", maxBackoffMillis)
+        .add("multiplier", multiplier).add("jitter", jitter).toString();
+  }
+}
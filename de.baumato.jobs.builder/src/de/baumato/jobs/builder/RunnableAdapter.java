@@ -10,22 +10,17 @@
  ******************************************************************************/
 package de.baumato.jobs.builder;
 
-import static com.google.common.base.Preconditions.checkNotNull;
-
 import java.lang.reflect.InvocationTargetException;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 
-import com.google.common.base.Throwables;
-
 /**
  * Lets a <tt>Runnable</tt> act as a <tt>IRunnableWithProgress</tt> with unknown amount of work.
  */
 public class RunnableAdapter implements IRunnableWithProgress {
 
-  private final String title;
-  private final Runnable runnable;
+  private final RunnableTask task;
 
   /**
    * Constructs a new instance.
@@ -34,46 +29,20 @@ public class RunnableAdapter implements IRunnableWithProgress {
    * @param runnable the runnable to run
    */
   public RunnableAdapter(String title, Runnable runnable) {
-    this.title = checkNotNull(title);
-    this.runnable = checkNotNull(runnable);
+    this.task = new RunnableTask(title, runnable);
   }
 
   @Override
   public void run(final IProgressMonitor monitor) throws InvocationTargetException,
       InterruptedException {
-    try {
-      monitorBeginTask(monitor);
-      runnable.run();
-    } catch (Exception e) {
-      handleError(e);
-    } finally {
-      monitorDone(monitor);
-    }
-  }
-
-  private void monitorBeginTask(final IProgressMonitor monitor) {
-    if (monitor != null) {
-      monitor.beginTask(title, IProgressMonitor.UNKNOWN);
-    }
-  }
-
-  private void handleError(Exception e) throws InterruptedException, InvocationTargetException {
-    Throwables.propagateIfPossible(e);
-    Throwables.propagateIfInstanceOf(e, InterruptedException.class);
-    throw new InvocationTargetException(e);
-  }
-
-  private void monitorDone(final IProgressMonitor monitor) {
-    if (monitor != null) {
-      monitor.done();
-    }
+    task.run(monitor);
   }
 
   public String getTitle() {
-    return title;
+    return task.getTitle();
   }
 
   public Runnable getAdaptedRunnable() {
-    return this.runnable;
+    return task.getAdaptedRunnable();
   }
 }
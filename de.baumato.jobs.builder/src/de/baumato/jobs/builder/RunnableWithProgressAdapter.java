@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.operation.IRunnableWithProgress;
+
+/**
+ * Lets a JFace <tt>IRunnableWithProgress</tt> act as a {@link ProgressRunnable}. This is the only
+ * place where the core refers to JFace, so it is only loaded if such a runnable is given.
+ */
+final class RunnableWithProgressAdapter implements ProgressRunnable {
+
+  private final IRunnableWithProgress runnable;
+
+  private RunnableWithProgressAdapter(IRunnableWithProgress runnable) {
+    this.runnable = runnable;
+  }
+
+  static ProgressRunnable adapt(IRunnableWithProgress runnable) {
+    return new RunnableWithProgressAdapter(checkNotNull(runnable, "Given runnable is null."));
+  }
+
+  static List<ProgressRunnable> adaptAll(Collection<? extends IRunnableWithProgress> runnables) {
+    List<ProgressRunnable> adapted = new ArrayList<ProgressRunnable>(runnables.size());
+    for (IRunnableWithProgress runnable : runnables) {
+      adapted.add(adapt(runnable));
+    }
+    return adapted;
+  }
+
+  @Override
+  public void run(IProgressMonitor monitor) throws InvocationTargetException,
+      InterruptedException {
+    runnable.run(monitor);
+  }
+}
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Pulls chunks from a source and processes them one after the other, so that only one chunk is in
+ * memory at a time. Progress is reported per chunk and cancellation is checked between chunks.
+ *
+ * @param <C> the type of the chunks
+ */
+class StreamingRunnable<C> implements ProgressRunnable {
+
+  private final String title;
+  private final ChunkSource<C> source;
+  private final ChunkProcessor<? super C> processor;
+
+  StreamingRunnable(String title, ChunkSource<C> source, ChunkProcessor<? super C> processor) {
+    this.title = checkNotNull(title);
+    this.source = source;
+    this.processor = checkNotNull(processor, "Given processor is null.");
+  }
+
+  /**
+   * Streams all chunks. Every run opens its own chunks of the source, so that jobs built by the same
+   * builder, retries and reschedules do not share a read position.
+   */
+  @Override
+  public void run(IProgressMonitor monitor) throws InvocationTargetException,
+      InterruptedException {
+    Chunks<C> chunks = null;
+    try {
+      chunks = source.open();
+      long totalChunks = chunks.count();
+      boolean known = totalChunks >= 0 && totalChunks <= Integer.MAX_VALUE;
+      monitor.beginTask(title, known ? (int) totalChunks : IProgressMonitor.UNKNOWN);
+      C chunk;
+      while ((chunk = chunks.next()) != null) {
+        processor.process(chunk);
+        monitor.worked(1);
+        if (monitor.isCanceled()) {
+          throw new InterruptedException();
+        }
+      }
+    } catch (InterruptedException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new InvocationTargetException(e);
+    } finally {
+      closeQuietly(chunks);
+      monitor.done();
+    }
+  }
+
+  private static void closeQuietly(Chunks<?> chunks) {
+    if (chunks == null) {
+      return;
+    }
+    try {
+      chunks.close();
+    } catch (IOException e) {
+      // the result of the stream does not depend on closing its source
+    }
+  }
+
+  /**
+   * Provides the chunks of a streaming job. Opened again on every run of the job.
+   */
+  abstract static class ChunkSource<C> {
+
+    /**
+     * Returns the chunks of one run, read from the start.
+     */
+    abstract Chunks<C> open() throws IOException;
+  }
+
+  /**
+   * The chunks of one run, holding the read position of that run.
+   */
+  abstract static class Chunks<C> {
+
+    /**
+     * Returns the number of chunks or -1 if unknown.
+     */
+    abstract long count() throws IOException;
+
+    /**
+     * Returns the next chunk or <code>null</code> if the source is exhausted.
+     */
+    abstract C next() throws IOException;
+
+    void close() throws IOException {}
+  }
+
+  /**
+   * Groups the elements of an iterable into lists of the chunk size.
+   */
+  static final class IterableSource<T> extends ChunkSource<List<T>> {
+
+    private final Iterable<? extends T> iterable;
+    private final int chunkSize;
+
+    IterableSource(Iterable<? extends T> iterable, int chunkSize) {
+      checkArgument(chunkSize > 0, "Given chunk size must be greater than 0.");
+      this.iterable = checkNotNull(iterable, "Given source is null.");
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    Chunks<List<T>> open() {
+      final Iterator<? extends T> iterator = iterable.iterator();
+      return new Chunks<List<T>>() {
+
+        @Override
+        long count() {
+          if (iterable instanceof Collection) {
+            long size = ((Collection<?>) iterable).size();
+            return (size + chunkSize - 1) / chunkSize;
+          }
+          return -1;
+        }
+
+        @Override
+        List<T> next() {
+          if (!iterator.hasNext()) {
+            return null;
+          }
+          List<T> chunk = new ArrayList<T>(chunkSize);
+          while (chunk.size() < chunkSize && iterator.hasNext()) {
+            chunk.add(iterator.next());
+          }
+          return chunk;
+        }
+      };
+    }
+  }
+
+  /**
+   * Reads a file channel from its current position to its end into a buffer of the chunk size.
+   * The same buffer is passed for every chunk of a run. If created for a file, the channel is
+   * opened on every run and closed afterwards, otherwise the given channel is left open.
+   */
+  static final class ChannelSource extends ChunkSource<ByteBuffer> {
+
+    private final File file;
+    private final FileChannel channel;
+    private final int chunkSize;
+    private final long startPosition;
+
+    /**
+     * Reads the given channel from its current position. The position of the channel is neither
+     * used nor changed afterwards, so every run of the job reads the same bytes.
+     */
+    ChannelSource(FileChannel channel, int chunkSize) {
+      this(null, checkNotNull(channel, "Given channel is null."), chunkSize,
+          positionOf(channel));
+    }
+
+    ChannelSource(File file, int chunkSize) {
+      this(checkNotNull(file, "Given file is null."), null, chunkSize, 0);
+    }
+
+    private ChannelSource(File file, FileChannel channel, int chunkSize, long startPosition) {
+      checkArgument(chunkSize > 0, "Given chunk size must be greater than 0.");
+      this.file = file;
+      this.channel = channel;
+      this.chunkSize = chunkSize;
+      this.startPosition = startPosition;
+    }
+
+    private static long positionOf(FileChannel channel) {
+      try {
+        return channel.position();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+
+    @Override
+    Chunks<ByteBuffer> open() throws IOException {
+      if (file != null) {
+        return new ChannelChunks(new FileInputStream(file).getChannel(), true);
+      }
+      return new ChannelChunks(channel, false);
+    }
+
+    private final class ChannelChunks extends Chunks<ByteBuffer> {
+
+      private final FileChannel channel;
+      private final boolean ownsChannel;
+      private final ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+      private long position = startPosition;
+
+      ChannelChunks(FileChannel channel, boolean ownsChannel) {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+      }
+
+      @Override
+      long count() throws IOException {
+        long remaining = Math.max(0, channel.size() - position);
+        return (remaining + chunkSize - 1) / chunkSize;
+      }
+
+      @Override
+      ByteBuffer next() throws IOException {
+        buffer.clear();
+        int read;
+        while (buffer.hasRemaining() && (read = channel.read(buffer, position)) >= 0) {
+          // reads until the buffer is full or the end of the channel is reached
+          position += read;
+        }
+        buffer.flip();
+        return buffer.hasRemaining() ? buffer : null;
+      }
+
+      @Override
+      void close() throws IOException {
+        if (ownsChannel) {
+          channel.close();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+
+import com.google.common.base.Objects;
+
+/**
+ * Hashes keys into a fixed number of stripes. Jobs scheduled with this rule do not run
+ * concurrently when their keys fall into the same stripe of the same lock object. Jobs with the
+ * same key therefore always run sequentially, while at most <tt>stripes</tt> jobs with different
+ * keys run in parallel. Rules of the same lock object using different numbers of stripes conflict
+ * if their keys have the same hash code, so that the same key still runs sequentially.
+ */
+class StripedRule implements ISchedulingRule {
+
+  private final Object lock;
+  private final int stripes;
+  private final int hash;
+  private final int stripe;
+
+  public StripedRule(Object lock, Object key, int stripes) {
+    checkNotNull(key);
+    checkArgument(stripes > 0, "Given number of stripes must be greater than 0.");
+    this.lock = checkNotNull(lock);
+    this.stripes = stripes;
+    this.hash = spread(key.hashCode());
+    this.stripe = (hash & Integer.MAX_VALUE) % stripes;
+  }
+
+  /**
+   * Spreads the higher bits to the lower ones, like java.util.HashMap does.
+   */
+  private static int spread(int h) {
+    h ^= (h >>> 20) ^ (h >>> 12);
+    return h ^ (h >>> 7) ^ (h >>> 4);
+  }
+
+  @Override
+  public boolean contains(ISchedulingRule rule) {
+    return rule == this || isConflicting(rule);
+  }
+
+  @Override
+  public boolean isConflicting(ISchedulingRule rule) {
+    if (rule instanceof StripedRule) {
+      StripedRule that = (StripedRule) rule;
+      if (!lock.equals(that.lock)) {
+        return false;
+      }
+      return stripes == that.stripes ? stripe == that.stripe : hash == that.hash;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("lock", lock).add("stripe", stripe)
+        .add("stripes", stripes).toString();
+  }
+}
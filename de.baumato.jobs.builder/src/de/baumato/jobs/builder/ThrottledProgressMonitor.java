@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Accumulates work and sub task names and passes them to the wrapped monitor at most once per
+ * interval. This avoids flooding the UI with progress updates when a runnable reports very fine
+ * grained progress. Like every progress monitor it must only be used by one thread.
+ */
+class ThrottledProgressMonitor extends DelegatingProgressMonitor {
+
+  private final long intervalNanos;
+  private long lastFlush;
+  private double pendingWork;
+  private String pendingSubTask;
+
+  ThrottledProgressMonitor(IProgressMonitor monitor, long intervalMillis) {
+    super(monitor);
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+  }
+
+  @Override
+  void bind(IProgressMonitor monitor) {
+    super.bind(monitor);
+    pendingWork = 0;
+    pendingSubTask = null;
+  }
+
+  @Override
+  public void beginTask(String name, int totalWork) {
+    super.beginTask(name, totalWork);
+    lastFlush = System.nanoTime();
+  }
+
+  @Override
+  public void worked(int work) {
+    internalWorked(work);
+  }
+
+  @Override
+  public void internalWorked(double work) {
+    pendingWork += work;
+    flushIfDue();
+  }
+
+  @Override
+  public void subTask(String name) {
+    pendingSubTask = name;
+    flushIfDue();
+  }
+
+  @Override
+  public void done() {
+    flush();
+    super.done();
+  }
+
+  private void flushIfDue() {
+    long now = System.nanoTime();
+    if (now - lastFlush >= intervalNanos) {
+      lastFlush = now;
+      flush();
+    }
+  }
+
+  private void flush() {
+    if (pendingSubTask != null) {
+      super.subTask(pendingSubTask);
+      pendingSubTask = null;
+    }
+    if (pendingWork > 0) {
+      super.internalWorked(pendingWork);
+      pendingWork = 0;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.jobs.Job;
+
+import de.baumato.jobs.builder.HashedWheelTimer.Timeout;
+
+/**
+ * Cancels a running job when its time is up and interrupts the thread running it if the job did
+ * not react to the cancellation within the grace period.
+ */
+final class TimeoutWatchdog {
+
+  private final Job job;
+  private final Thread thread;
+  private final long gracePeriodMillis;
+  private final Timeout cancelTimeout;
+  private volatile Timeout interruptTimeout;
+  private volatile boolean timedOut;
+  private boolean finished;
+
+  private TimeoutWatchdog(Job job, long remainingMillis, long gracePeriodMillis) {
+    this.job = job;
+    this.thread = Thread.currentThread();
+    this.gracePeriodMillis = gracePeriodMillis;
+    this.cancelTimeout =
+        HashedWheelTimer.INSTANCE.newTimeout(new Runnable() {
+          @Override
+          public void run() {
+            cancelJob();
+          }
+        }, remainingMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts watching the given job, which must be running in the current thread.
+   */
+  static TimeoutWatchdog start(Job job, long remainingMillis, long gracePeriodMillis) {
+    return new TimeoutWatchdog(job, remainingMillis, gracePeriodMillis);
+  }
+
+  private void cancelJob() {
+    timedOut = true;
+    job.cancel();
+    interruptTimeout = HashedWheelTimer.INSTANCE.newTimeout(new Runnable() {
+      @Override
+      public void run() {
+        interruptThread();
+      }
+    }, gracePeriodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void interruptThread() {
+    if (!finished) {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * Stops watching the job. Must be called by the thread running the job.
+   *
+   * @return <code>true</code> if the job has timed out
+   */
+  boolean stop() {
+    cancelTimeout.cancel();
+    synchronized (this) {
+      finished = true;
+    }
+    Timeout interrupt = interruptTimeout;
+    if (interrupt != null) {
+      interrupt.cancel();
+    }
+    if (timedOut) {
+      // clears a possible interruption, so that it does not leak into the next job of the thread
+      Thread.interrupted();
+    }
+    return timedOut;
+  }
+}
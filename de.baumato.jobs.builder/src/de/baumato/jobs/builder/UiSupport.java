@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+/**
+ * Checks which UI parts are available. The bundle imports JFace, SWT and the workbench optionally,
+ * so that it also works in headless applications. Classes referring to them directly must only be
+ * used if they are available. The core runs {@link ProgressRunnable}s, JFace runnables are only
+ * adapted when they are given to the builder.
+ */
+final class UiSupport {
+
+  private static final boolean SWT_AVAILABLE = isClassAvailable("org.eclipse.swt.widgets.Display");
+  private static final boolean WORKBENCH_AVAILABLE =
+      isClassAvailable("org.eclipse.ui.PlatformUI")
+          && isClassAvailable("org.eclipse.ui.progress.IProgressConstants")
+          && isClassAvailable("org.eclipse.jface.action.Action");
+
+  private UiSupport() {}
+
+  private static boolean isClassAvailable(String className) {
+    try {
+      Class.forName(className, false, UiSupport.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if SWT is available, see {@link DisplayExecutor}. This does not mean
+   * that there is a display.
+   */
+  static boolean isSwtAvailable() {
+    return SWT_AVAILABLE;
+  }
+
+  /**
+   * Returns <code>true</code> if the workbench's progress support is available, see
+   * {@link WorkbenchProgress}.
+   */
+  static boolean isWorkbenchAvailable() {
+    return WORKBENCH_AVAILABLE;
+  }
+}
@@ -10,11 +10,14 @@
  ******************************************************************************/
 package de.baumato.jobs.builder;
 
+import java.util.Collections;
+
 import org.eclipse.core.runtime.IStatus;
 
 class UserFeedback {
 
   UserFeedbackRunnable runnable;
+  AggregatedUserFeedbackRunnable aggregatedRunnable;
   boolean performFeedbackImmediately;
 
   UserFeedback(UserFeedbackRunnable runnable, boolean performFeedbackImmedtiately) {
@@ -22,7 +25,18 @@ class UserFeedback {
     this.performFeedbackImmediately = performFeedbackImmedtiately;
   }
 
+  UserFeedback(AggregatedUserFeedbackRunnable aggregatedRunnable,
+      boolean performFeedbackImmediately) {
+    this.aggregatedRunnable = aggregatedRunnable;
+    this.performFeedbackImmediately = performFeedbackImmediately;
+  }
+
   void performUserFeedback(IStatus jobResult, boolean immediateFeedback) {
-    runnable.performUserFeedback(jobResult, immediateFeedback);
+    if (aggregatedRunnable != null) {
+      aggregatedRunnable.performUserFeedback(Collections.singletonList(jobResult),
+          immediateFeedback);
+    } else {
+      runnable.performUserFeedback(jobResult, immediateFeedback);
+    }
   }
 }
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Holds the executor running the user feedback of finished jobs. By default it is the UI thread if
+ * there is a display, otherwise the feedback runs directly in the thread finishing the job.
+ */
+final class UserFeedbackExecutor {
+
+  private static volatile Executor executor;
+
+  private UserFeedbackExecutor() {}
+
+  static Executor get() {
+    Executor current = executor;
+    if (current == null) {
+      current = UiSupport.isSwtAvailable() ? new DisplayExecutor() : new DirectExecutor();
+      executor = current;
+    }
+    return current;
+  }
+
+  /**
+   * Called when a job with user feedback gets scheduled. Lets the default executor remember the
+   * display of the scheduling thread, see {@link DisplayExecutor#rememberCurrentDisplay()}.
+   */
+  static void jobScheduled() {
+    if (UiSupport.isSwtAvailable()) {
+      DisplayExecutor.rememberCurrentDisplay();
+    }
+  }
+
+  static void set(Executor executor) {
+    UserFeedbackExecutor.executor = checkNotNull(executor, "Given executor is null.");
+  }
+
+  private static final class DirectExecutor implements Executor {
+
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  }
+}
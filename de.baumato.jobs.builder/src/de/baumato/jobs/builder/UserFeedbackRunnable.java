@@ -20,7 +20,8 @@ import org.eclipse.core.runtime.IStatus;
 public interface UserFeedbackRunnable {
 
   /**
-   * Gives feedback to the user. Runs in the UI thread.
+   * Gives feedback to the user. Runs in the UI thread, or in the executor set by
+   * {@link Jobs#setUserFeedbackExecutor(java.util.concurrent.Executor)}.
    *
    * @see JobBuilder#immediateUserFeedback(String, UserFeedbackRunnable)
    * @see JobBuilder#userFeedback(String, UserFeedbackRunnable)
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import java.lang.reflect.Method;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Creates virtual threads if the running Java version supports them (Java 21 or later). The API is
+ * accessed reflectively because the bundle is compiled against older Java versions.
+ */
+final class VirtualThreads {
+
+  private static final Method OF_VIRTUAL;
+  private static final Method UNSTARTED;
+
+  static {
+    Method ofVirtual = null;
+    Method unstarted = null;
+    try {
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      unstarted =
+          Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+    } catch (Exception e) {
+      ofVirtual = null;
+      unstarted = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    UNSTARTED = unstarted;
+  }
+
+  private VirtualThreads() {}
+
+  static boolean isSupported() {
+    return UNSTARTED != null;
+  }
+
+  /**
+   * Returns a new, not yet started virtual thread running the given runnable.
+   *
+   * @throws IllegalStateException if virtual threads are not supported
+   */
+  static Thread newThread(Runnable runnable) {
+    if (!isSupported()) {
+      throw new IllegalStateException("Virtual threads are not supported by this Java version.");
+    }
+    try {
+      // a thread builder is not thread safe, so every thread gets its own
+      return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(null), runnable);
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
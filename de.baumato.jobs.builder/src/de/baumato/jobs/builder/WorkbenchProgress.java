@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2014 Tobias Baumann.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Tobias Baumann - initial API and implementation
+ ******************************************************************************/
+package de.baumato.jobs.builder;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.progress.IProgressConstants;
+
+/**
+ * Sets the job properties understood by the workbench's progress view. Must only be used if
+ * {@link UiSupport#isWorkbenchAvailable()}.
+ */
+final class WorkbenchProgress {
+
+  private WorkbenchProgress() {}
+
+  static void setIcon(Job job, ImageDescriptor image) {
+    job.setProperty(IProgressConstants.ICON_PROPERTY, image);
+  }
+
+  static void setNoImmediateErrorPrompt(Job job, boolean noImmediateErrorPrompt) {
+    job.setProperty(IProgressConstants.NO_IMMEDIATE_ERROR_PROMPT_PROPERTY,
+        Boolean.valueOf(noImmediateErrorPrompt));
+  }
+
+  /**
+   * Checks if the job is currently in modal mode, means the user decided to NOT run it in
+   * background.
+   */
+  static boolean isModal(Job job) {
+    Boolean isModal = (Boolean) job.getProperty(IProgressConstants.PROPERTY_IN_DIALOG);
+    return isModal == null ? false : isModal.booleanValue();
+  }
+
+  /**
+   * Creates an action running the given runnable. It is returned as object so that callers do not
+   * refer to JFace.
+   */
+  static Object createAction(final Runnable runnable) {
+    return new Action() {
+      @Override
+      public void run() {
+        runnable.run();
+      }
+    };
+  }
+
+  /**
+   * Keeps the finished job in the progress view with a link running the given action.
+   *
+   * @see #createAction(Runnable)
+   */
+  static void keepWithAction(Job job, Object action) {
+    job.setProperty(IProgressConstants.KEEP_PROPERTY, Boolean.TRUE);
+    job.setProperty(IProgressConstants.ACTION_PROPERTY, action);
+  }
+}